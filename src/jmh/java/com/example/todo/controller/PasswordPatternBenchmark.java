@@ -0,0 +1,34 @@
+package com.example.todo.controller;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Kiểm tra AuthController.PASSWORD_PATTERN với mật khẩu hợp lệ, yếu và rất dài
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class PasswordPatternBenchmark {
+
+    @Param({"strong", "weak", "long"})
+    public String kind;
+
+    private String password;
+
+    @Setup
+    public void setUp() {
+        password = switch (kind) {
+            case "strong" -> "Passw0rdX";
+            case "weak" -> "password";
+            default -> "a".repeat(1000) + "A1";
+        };
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return AuthController.PASSWORD_PATTERN.matcher(password).matches();
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.todo.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Serialize Task + TaskDetail bằng ObjectMapper cấu hình giống Spring Boot (danh sách "size" task)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class TaskSerializationBenchmark {
+
+    @Param({"1", "100"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private List<Task> tasks;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 9, 0);
+        tasks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Task task = new Task();
+            task.setId((long) i + 1);
+            task.setTitle("Task " + i);
+            task.setDescription("Description for task " + i);
+            task.setType(i % 2 == 0 ? "work" : "personal");
+            task.setCompleted(i % 3 == 0);
+            task.setCompletedAt(i % 3 == 0 ? base.plusHours(i) : null);
+            task.setChangeVersion(i + 1);
+            task.setUpdatedAt(base.plusMinutes(i));
+
+            TaskDetail detail = new TaskDetail();
+            detail.setId((long) i + 1);
+            detail.setTask(task);
+            detail.setDueDate(base.plusDays(i));
+            detail.setTime(base.plusDays(i).plusHours(2));
+            detail.setDuration("30m");
+            detail.setRepeat("none");
+            detail.setPriority(1 + i % 4);
+            detail.setReminder(15);
+            task.setTaskDetail(detail);
+            tasks.add(task);
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(size == 1 ? tasks.get(0) : tasks);
+    }
+}
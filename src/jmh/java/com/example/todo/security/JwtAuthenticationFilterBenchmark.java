@@ -0,0 +1,57 @@
+package com.example.todo.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.concurrent.TimeUnit;
+
+// Chi phí JwtAuthenticationFilter cho mỗi request /api/tasks (gồm cả dựng mock request/response)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class JwtAuthenticationFilterBenchmark {
+
+    @Param({"10000", "0"})
+    public int verifiedCacheMaxSize;
+
+    private JwtAuthenticationFilter filter;
+    private String authorization;
+    private final FilterChain chain = (request, response) -> { };
+
+    @Setup
+    public void setUp() {
+        JwtService jwtService = JwtBenchmark.newJwtService(verifiedCacheMaxSize);
+        filter = new JwtAuthenticationFilter(
+                jwtService,
+                username -> { throw new UsernameNotFoundException(username); },
+                new AccountRevocationCache(10_000, JwtBenchmark.EXPIRATION_MS),
+                PrincipalRevalidation.REVOCATION_CACHE,
+                new SimpleMeterRegistry());
+        authorization = "Bearer " + jwtService.generateToken(42L, "bench@example.com");
+    }
+
+    @Benchmark
+    public void authenticatedRequest(Blackhole blackhole) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tasks");
+        request.addHeader("Authorization", authorization);
+        filter.doFilterInternal(request, new MockHttpServletResponse(), chain);
+        blackhole.consume(SecurityContextHolder.getContext().getAuthentication());
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public void anonymousRequest(Blackhole blackhole) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/auth/login");
+        filter.doFilterInternal(request, new MockHttpServletResponse(), chain);
+        blackhole.consume(SecurityContextHolder.getContext().getAuthentication());
+    }
+}
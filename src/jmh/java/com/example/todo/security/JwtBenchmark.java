@@ -0,0 +1,56 @@
+package com.example.todo.security;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+// Tạo token và verify token (có/không có cache token đã verify)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class JwtBenchmark {
+
+    static final String SECRET = "c2VjcmV0LXNlY3JldC1zZWNyZXQtc2VjcmV0LXNlY3JldC1zZWNyZXQtc2VjcmV0";
+    static final long EXPIRATION_MS = 36_000_000L;
+
+    private JwtService cachedService;
+    private JwtService uncachedService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        cachedService = newJwtService(10_000);
+        uncachedService = newJwtService(0);
+        token = cachedService.generateToken(42L, "bench@example.com");
+        cachedService.verify(token);
+    }
+
+    // Dựng JwtService ngoài Spring, cấu hình giống application.properties
+    static JwtService newJwtService(int verifiedCacheMaxSize) {
+        JwtService service = new JwtService();
+        ReflectionTestUtils.setField(service, "secretKey", SECRET);
+        ReflectionTestUtils.setField(service, "jwtExpiration", EXPIRATION_MS);
+        ReflectionTestUtils.setField(service, "verifiedCacheMaxSize", verifiedCacheMaxSize);
+        service.init();
+        return service;
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return uncachedService.generateToken(42L, "bench@example.com");
+    }
+
+    @Benchmark
+    public JwtClaims verifyCached() {
+        return cachedService.verify(token);
+    }
+
+    @Benchmark
+    public JwtClaims verifyUncached() {
+        return uncachedService.verify(token);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.todo.security;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Chi phí của limiter trên request được cho qua: một key nóng và nhiều key, đơn luồng và có tranh chấp
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class RateLimiterBenchmark {
+
+    private static final int KEYS = 1024;
+    // Capacity rất lớn để mọi request đều được cho qua (đo đúng đường "allowed")
+    private static final int CAPACITY = Integer.MAX_VALUE;
+    private static final long PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private TokenBucketRateLimiter limiter;
+    private String[] keys;
+
+    @Setup
+    public void setUp() {
+        limiter = new TokenBucketRateLimiter(100_000);
+        keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "login-ip|10.0." + (i / 256) + "." + (i % 256);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public TokenBucketRateLimiter.Decision singleKey() {
+        return limiter.tryAcquire(keys[0], CAPACITY, PERIOD_NANOS);
+    }
+
+    @Benchmark
+    public TokenBucketRateLimiter.Decision manyKeys(Cursor cursor) {
+        return limiter.tryAcquire(keys[cursor.next++ & (KEYS - 1)], CAPACITY, PERIOD_NANOS);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public TokenBucketRateLimiter.Decision singleKeyContended() {
+        return limiter.tryAcquire(keys[0], CAPACITY, PERIOD_NANOS);
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.todo.loadtest;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+/**
+ * Sinh dữ liệu bằng COPY (nhanh hơn INSERT nhiều lần): N user, mỗi user M task kèm task_details.
+ * Id được gán sẵn theo khoảng liên tiếp nên client biết id task của từng user mà không cần query.
+ */
+final class DatasetSeeder {
+
+    static final String PASSWORD = "Passw0rdX";
+    // Khớp allocationSize của các @SequenceGenerator
+    private static final int ALLOCATION_SIZE = 50;
+    private static final int ROWS_PER_COPY = 50_000;
+    private static final DateTimeFormatter TS = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    private static final String[] TYPES = {"work", "personal", "shopping", "study"};
+    private static final String[] REPEATS = {"none", "daily", "weekly", "monthly"};
+
+    record Dataset(String runId, long firstUserId, int users, long firstTaskId, int tasksPerUser) {
+
+        String email(int user) {
+            return "load-" + runId + "-" + user + "@example.com";
+        }
+
+        long taskId(int user, int index) {
+            return firstTaskId + (long) user * tasksPerUser + index;
+        }
+    }
+
+    private DatasetSeeder() {}
+
+    static Dataset seed(String jdbcUrl, String user, String password, LoadTestConfig config) throws SQLException, IOException {
+        try (Connection connection = DriverManager.getConnection(jdbcUrl, user, password)) {
+            String runId = Long.toString(System.currentTimeMillis(), 36);
+            long firstUserId = nextFreeId(connection, "users");
+            long firstTaskId = nextFreeId(connection, "tasks");
+            long firstDetailId = nextFreeId(connection, "task_details");
+            Dataset dataset = new Dataset(runId, firstUserId, config.users(), firstTaskId, config.tasksPerUser());
+
+            // Mọi user dùng chung một hash để không tốn N lần BCrypt lúc seed
+            String hash = new BCryptPasswordEncoder(10).encode(PASSWORD);
+            Random random = new Random(config.seed());
+            LocalDateTime base = LocalDateTime.of(2025, 1, 1, 8, 0);
+            CopyManager copy = connection.unwrap(PGConnection.class).getCopyAPI();
+
+            StringBuilder users = new StringBuilder();
+            for (int u = 0; u < config.users(); u++) {
+                users.append(firstUserId + u).append(',')
+                        .append("Load User ").append(u).append(',')
+                        .append(dataset.email(u)).append(',')
+                        .append(hash).append(",1\n");
+            }
+            copy.copyIn("COPY todo_schema.users (id, name, email, password, change_version) FROM STDIN WITH (FORMAT csv)",
+                    new StringReader(users.toString()));
+
+            StringBuilder tasks = new StringBuilder();
+            StringBuilder details = new StringBuilder();
+            int rows = 0;
+            long detailId = firstDetailId;
+            for (int u = 0; u < config.users(); u++) {
+                for (int t = 0; t < config.tasksPerUser(); t++) {
+                    long taskId = dataset.taskId(u, t);
+                    boolean completed = random.nextInt(3) == 0;
+                    LocalDateTime updated = base.plusMinutes(random.nextInt(500_000));
+                    tasks.append(taskId).append(',')
+                            .append(firstUserId + u).append(',')
+                            .append(completed).append(',')
+                            .append("Task ").append(t).append(',')
+                            .append("Seeded task ").append(t).append(" for user ").append(u).append(',')
+                            .append(TYPES[random.nextInt(TYPES.length)]).append(',')
+                            .append(completed ? TS.format(updated) : "").append(',')
+                            .append("1,")
+                            .append(TS.format(updated)).append('\n');
+                    if (random.nextInt(10) < 8) {
+                        LocalDateTime due = base.plusHours(random.nextInt(24 * 365));
+                        details.append(detailId++).append(',')
+                                .append(taskId).append(',')
+                                .append(TS.format(due)).append(',')
+                                .append(TS.format(due.plusHours(1))).append(',')
+                                .append("30m,")
+                                .append(REPEATS[random.nextInt(REPEATS.length)]).append(',')
+                                .append(1 + random.nextInt(4)).append(',')
+                                .append(15).append(',')
+                                .append(TS.format(updated)).append('\n');
+                    }
+                    if (++rows % ROWS_PER_COPY == 0) {
+                        flush(copy, tasks, details);
+                    }
+                }
+            }
+            flush(copy, tasks, details);
+
+            // Đẩy sequence qua khỏi các id đã dùng (pooled optimizer dùng khoảng (value - 50, value])
+            try (Statement statement = connection.createStatement()) {
+                for (String table : new String[]{"users", "tasks", "task_details"}) {
+                    statement.execute("SELECT setval('todo_schema." + table + "_id_seq', "
+                            + "(SELECT COALESCE(MAX(id), 0) FROM todo_schema." + table + ") + " + ALLOCATION_SIZE + ")");
+                }
+                statement.execute("ANALYZE todo_schema.users");
+                statement.execute("ANALYZE todo_schema.tasks");
+                statement.execute("ANALYZE todo_schema.task_details");
+            }
+            return dataset;
+        }
+    }
+
+    private static void flush(CopyManager copy, StringBuilder tasks, StringBuilder details) throws SQLException, IOException {
+        if (!tasks.isEmpty()) {
+            copy.copyIn("COPY todo_schema.tasks (id, user_id, completed, title, description, type, completed_at, change_version, updated_at) "
+                    + "FROM STDIN WITH (FORMAT csv)", new StringReader(tasks.toString()));
+            tasks.setLength(0);
+        }
+        if (!details.isEmpty()) {
+            copy.copyIn("COPY todo_schema.task_details (id, task_id, due_date, \"time\", duration, \"repeat\", priority, reminder, updated_at) "
+                    + "FROM STDIN WITH (FORMAT csv)", new StringReader(details.toString()));
+            details.setLength(0);
+        }
+    }
+
+    // Chừa khoảng trống sau id lớn nhất hiện có, để không đụng block id app đã cấp phát (DB dùng lại)
+    private static long nextFreeId(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT GREATEST(COALESCE(MAX(id), 0), "
+                     + "(SELECT last_value FROM todo_schema." + table + "_id_seq)) FROM todo_schema." + table)) {
+            rs.next();
+            return rs.getLong(1) + ALLOCATION_SIZE + 1;
+        }
+    }
+}
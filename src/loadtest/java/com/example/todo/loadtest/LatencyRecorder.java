@@ -0,0 +1,70 @@
+package com.example.todo.loadtest;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Ghi latency (ns) theo endpoint cho một client thread; cuối bài test các recorder được gộp lại.
+ * Mỗi thread một recorder nên không cần đồng bộ trên đường đo.
+ */
+final class LatencyRecorder {
+
+    static final class Samples {
+        long[] values = new long[1024];
+        int count;
+        long errors;
+
+        void add(long nanos) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = nanos;
+        }
+
+        void addAll(Samples other) {
+            for (int i = 0; i < other.count; i++) {
+                add(other.values[i]);
+            }
+            errors += other.errors;
+        }
+
+        long percentile(double p) {
+            if (count == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(p / 100.0 * count) - 1;
+            return values[Math.max(0, Math.min(index, count - 1))];
+        }
+
+        void sort() {
+            Arrays.sort(values, 0, count);
+        }
+    }
+
+    private final Map<String, Samples> samples = new HashMap<>();
+    private volatile boolean recording;
+
+    void record(String endpoint, long nanos, boolean ok) {
+        if (!recording) {
+            return;
+        }
+        Samples s = samples.computeIfAbsent(endpoint, key -> new Samples());
+        s.add(nanos);
+        if (!ok) {
+            s.errors++;
+        }
+    }
+
+    void start() {
+        recording = true;
+    }
+
+    void stop() {
+        recording = false;
+    }
+
+    Map<String, Samples> samples() {
+        return samples;
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.todo.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Một "người dùng ảo": đăng nhập rồi lặp lại các thao tác theo tỉ lệ trong mix (closed loop,
+ * có thể thêm think time). Mỗi client làm việc trên một phần task riêng của user để không giẫm chân nhau.
+ */
+final class LoadClient implements Runnable {
+
+    private static final String[] SORTS = {"id", "dueDate", "completedAt"};
+    private static final AtomicLong SIGNUPS = new AtomicLong();
+
+    private final String baseUrl;
+    private final HttpClient http;
+    private final ObjectMapper objectMapper;
+    private final DatasetSeeder.Dataset dataset;
+    private final LoadTestConfig config;
+    private final String[] operations;
+    private final int[] cumulativeWeights;
+    private final LatencyRecorder recorder;
+    private final AtomicBoolean running;
+    private final Random random;
+    private final int user;
+    private final List<Long> taskIds = new ArrayList<>();
+
+    private String token;
+    private long lastVersion;
+
+    LoadClient(int index, String baseUrl, HttpClient http, ObjectMapper objectMapper, DatasetSeeder.Dataset dataset,
+               LoadTestConfig config, LatencyRecorder recorder, AtomicBoolean running) {
+        this.baseUrl = baseUrl;
+        this.http = http;
+        this.objectMapper = objectMapper;
+        this.dataset = dataset;
+        this.config = config;
+        this.recorder = recorder;
+        this.running = running;
+        this.random = new Random(config.seed() + index);
+        this.user = index % dataset.users();
+
+        // Client thứ k của cùng một user chỉ đụng tới task có chỉ số ≡ k (mod số client của user đó)
+        int clientsPerUser = Math.max(1, (config.clients() + dataset.users() - 1) / dataset.users());
+        int slot = index / dataset.users();
+        for (int t = slot; t < dataset.tasksPerUser(); t += clientsPerUser) {
+            taskIds.add(dataset.taskId(user, t));
+        }
+
+        Map<String, Integer> weights = parseMix(config.mix());
+        this.operations = weights.keySet().toArray(String[]::new);
+        this.cumulativeWeights = new int[operations.length];
+        int sum = 0;
+        for (int i = 0; i < operations.length; i++) {
+            sum += weights.get(operations[i]);
+            cumulativeWeights[i] = sum;
+        }
+    }
+
+    static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] kv = part.trim().split("=");
+            int weight = Integer.parseInt(kv[1].trim());
+            if (weight > 0) {
+                weights.put(kv[0].trim(), weight);
+            }
+        }
+        return weights;
+    }
+
+    @Override
+    public void run() {
+        try {
+            login();
+        } catch (Exception e) {
+            return;
+        }
+        while (running.get()) {
+            String operation = pick();
+            try {
+                execute(operation);
+            } catch (Exception e) {
+                recorder.record("ERROR " + operation, 0, false);
+            }
+            if (!config.thinkTime().isZero()) {
+                try {
+                    Thread.sleep(config.thinkTime().toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private String pick() {
+        int r = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (r < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private void execute(String operation) throws Exception {
+        switch (operation) {
+            case "list" -> send("GET /api/tasks", get("/api/tasks"));
+            case "page" -> send("GET /api/tasks/page",
+                    get("/api/tasks/page?limit=50&sort=" + SORTS[random.nextInt(SORTS.length)]));
+            case "changes" -> {
+                JsonNode body = send("GET /api/tasks/changes", get("/api/tasks/changes?since=" + lastVersion));
+                if (body != null) {
+                    lastVersion = body.path("version").asLong(lastVersion);
+                }
+            }
+            case "create" -> {
+                JsonNode body = send("POST /api/tasks", post("/api/tasks", newTask()));
+                if (body != null && body.hasNonNull("id")) {
+                    taskIds.add(body.get("id").asLong());
+                }
+            }
+            case "update" -> {
+                Long id = randomTaskId();
+                if (id != null) {
+                    Map<String, Object> task = newTask();
+                    task.put("completed", random.nextBoolean());
+                    send("PUT /api/tasks/{id}", request("/api/tasks/" + id).PUT(body(task)));
+                }
+            }
+            case "complete" -> {
+                Long id = randomTaskId();
+                if (id != null) {
+                    send("PATCH /api/tasks/{id}", request("/api/tasks/" + id)
+                            .method("PATCH", body(Map.of("completed", random.nextBoolean()))));
+                }
+            }
+            case "batch" -> {
+                List<Map<String, Object>> ops = new ArrayList<>();
+                for (int i = 0; i < 5; i++) {
+                    Long id = randomTaskId();
+                    if (id != null) {
+                        ops.add(Map.of("op", random.nextBoolean() ? "complete" : "uncomplete", "id", id));
+                    }
+                }
+                ops.add(Map.of("op", "create", "task", newTask()));
+                JsonNode body = send("POST /api/tasks/batch", post("/api/tasks/batch", Map.of("operations", ops)));
+                if (body != null) {
+                    for (JsonNode result : body) {
+                        if ("create".equals(result.path("op").asText()) && result.path("id").canConvertToLong()) {
+                            taskIds.add(result.get("id").asLong());
+                        }
+                    }
+                }
+            }
+            case "delete" -> {
+                if (taskIds.size() <= 10) {
+                    execute("create");
+                    return;
+                }
+                Long id = taskIds.remove(random.nextInt(taskIds.size()));
+                send("DELETE /api/tasks/{id}", request("/api/tasks/" + id).DELETE());
+            }
+            case "bulk" -> {
+                List<Map<String, Object>> tasks = new ArrayList<>();
+                for (int i = 0; i < 10; i++) {
+                    tasks.add(newTask());
+                }
+                JsonNode body = send("POST /api/tasks/bulk", post("/api/tasks/bulk", tasks));
+                if (body != null) {
+                    body.forEach(task -> taskIds.add(task.get("id").asLong()));
+                }
+            }
+            case "export" -> send("GET /api/tasks/export", get("/api/tasks/export?format=ndjson"));
+            case "login" -> login();
+            case "signup" -> {
+                String email = "signup-" + dataset.runId() + "-" + SIGNUPS.incrementAndGet() + "@example.com";
+                send("POST /api/auth/signup", anonymous("/api/auth/signup").POST(body(Map.of(
+                        "name", "Load Signup", "email", email,
+                        "password", DatasetSeeder.PASSWORD, "confirm", DatasetSeeder.PASSWORD))));
+            }
+            case "avatar" -> send("GET /api/auth/avatar/{userId}",
+                    anonymous("/api/auth/avatar/" + (dataset.firstUserId() + user)).GET());
+            default -> throw new IllegalArgumentException("Unknown operation in mix: " + operation);
+        }
+    }
+
+    private void login() throws Exception {
+        JsonNode body = send("POST /api/auth/login", anonymous("/api/auth/login").POST(body(Map.of(
+                "email", dataset.email(user), "password", DatasetSeeder.PASSWORD))));
+        if (body == null || !body.hasNonNull("token")) {
+            throw new IllegalStateException("Login failed for " + dataset.email(user));
+        }
+        token = body.get("token").asText();
+    }
+
+    private Long randomTaskId() {
+        return taskIds.isEmpty() ? null : taskIds.get(random.nextInt(taskIds.size()));
+    }
+
+    private Map<String, Object> newTask() {
+        LocalDateTime due = LocalDateTime.of(2025, 6, 1, 9, 0).plusHours(random.nextInt(24 * 180));
+        Map<String, Object> detail = new LinkedHashMap<>();
+        detail.put("dueDate", due.toString());
+        detail.put("duration", "30m");
+        detail.put("repeat", "none");
+        detail.put("priority", 1 + random.nextInt(4));
+        detail.put("reminder", 15);
+        Map<String, Object> task = new LinkedHashMap<>();
+        task.put("title", "Load task " + random.nextInt(1_000_000));
+        task.put("description", "Created by load test");
+        task.put("type", "work");
+        task.put("taskDetail", detail);
+        return task;
+    }
+
+    // Gửi request, ghi latency; trả về body JSON nếu status 2xx và có body
+    private JsonNode send(String endpoint, HttpRequest.Builder builder) throws Exception {
+        long start = System.nanoTime();
+        HttpResponse<byte[]> response = http.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+        long elapsed = System.nanoTime() - start;
+        boolean ok = response.statusCode() / 100 == 2;
+        recorder.record(endpoint, elapsed, ok);
+        if (!ok || response.body().length == 0 || endpoint.endsWith("/export")) {
+            return null;
+        }
+        String contentType = response.headers().firstValue("Content-Type").orElse("");
+        return contentType.contains("json") ? objectMapper.readTree(response.body()) : null;
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return request(path).GET();
+    }
+
+    private HttpRequest.Builder post(String path, Object payload) throws Exception {
+        return request(path).POST(body(payload));
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return anonymous(path).header("Authorization", "Bearer " + token);
+    }
+
+    private HttpRequest.Builder anonymous(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json");
+    }
+
+    private HttpRequest.BodyPublisher body(Object payload) throws Exception {
+        return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(payload));
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.todo.loadtest;
+
+import java.time.Duration;
+
+/**
+ * Tham số load test, đọc từ system property "loadtest.*" (truyền qua -D khi chạy mvn -Ploadtest).
+ */
+record LoadTestConfig(
+        String jdbcUrl,           // rỗng = khởi động Postgres nhúng
+        String dbUser,
+        String dbPassword,
+        int users,
+        int tasksPerUser,
+        int clients,
+        Duration warmup,
+        Duration duration,
+        Duration thinkTime,
+        long seed,
+        boolean virtualThreads,
+        String mix) {
+
+    static final String DEFAULT_MIX =
+            "list=30,page=20,changes=8,create=12,update=10,complete=10,batch=5,delete=5,bulk=2,export=1,login=5,signup=1";
+
+    static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig(
+                System.getProperty("loadtest.jdbc-url", ""),
+                System.getProperty("loadtest.db-user", "postgres"),
+                System.getProperty("loadtest.db-password", "postgres"),
+                Integer.getInteger("loadtest.users", 200),
+                Integer.getInteger("loadtest.tasks-per-user", 200),
+                Integer.getInteger("loadtest.clients", 32),
+                Duration.parse("PT" + System.getProperty("loadtest.warmup", "15s")),
+                Duration.parse("PT" + System.getProperty("loadtest.duration", "60s")),
+                Duration.parse("PT" + System.getProperty("loadtest.think-time", "0s")),
+                Long.getLong("loadtest.seed", 42L),
+                Boolean.parseBoolean(System.getProperty("loadtest.virtual-threads", "false")),
+                System.getProperty("loadtest.mix", DEFAULT_MIX));
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.todo.loadtest;
+
+import com.example.todo.TodoApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Load test end-to-end: Postgres nhúng (hoặc DB có sẵn qua loadtest.jdbc-url) → khởi động TodoApplication
+ * → seed dữ liệu bằng COPY → chạy traffic hỗn hợp → in throughput, p50/p95/p99, cấp phát bộ nhớ
+ * và số câu SQL cho từng endpoint, đồng thời ghi báo cáo JSON.
+ * Endpoint đọc danh sách vượt ngân sách câu SQL ({@link #SQL_BUDGETS}) thì thoát với mã 1.
+ *
+ * Chạy: mvn -Ploadtest test-compile exec:exec -Dloadtest.users=200 -Dloadtest.clients=32 -Dloadtest.duration=60s
+ */
+public final class LoadTestRunner {
+
+    private static final String JWT_SECRET = "bG9hZHRlc3Qtc2VjcmV0LWxvYWR0ZXN0LXNlY3JldC1sb2FkdGVzdC1zZWNyZXQ=";
+
+    // Số câu SQL tối đa mỗi request: danh sách phải lấy task + detail trong một câu, vượt là đã quay lại N+1
+    static final Map<String, Double> SQL_BUDGETS = Map.of(
+            "GET /api/tasks", 1.0,
+            "GET /api/tasks/page", 1.0,
+            "GET /api/tasks/changes", 3.0);
+
+    private LoadTestRunner() {}
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        // Devtools có trên classpath test, không để nó khởi động lại app
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        EmbeddedPostgres embedded = null;
+        String jdbcUrl = config.jdbcUrl();
+        if (jdbcUrl.isBlank()) {
+            embedded = EmbeddedPostgres.builder().start();
+            try (Connection connection = embedded.getPostgresDatabase().getConnection()) {
+                connection.createStatement().execute("CREATE DATABASE todolistdb");
+            }
+            jdbcUrl = "jdbc:postgresql://localhost:" + embedded.getPort() + "/todolistdb";
+        }
+
+        // System property đè lên application.properties và có hiệu lực trước cả lúc cấu hình logging
+        appProperties(config, jdbcUrl).forEach((key, value) -> System.setProperty(key, String.valueOf(value)));
+        RequestProbe probe = new RequestProbe();
+        ConfigurableApplicationContext app = new SpringApplicationBuilder(TodoApplication.class)
+                .initializers(context -> {
+                    FilterRegistrationBean<RequestProbe> registration = new FilterRegistrationBean<>(probe);
+                    registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+                    context.getBeanFactory().registerSingleton("loadTestRequestProbe", registration);
+                })
+                .run();
+        int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+        int exitCode;
+
+        try {
+            long seedStart = System.nanoTime();
+            DatasetSeeder.Dataset dataset = DatasetSeeder.seed(jdbcUrl, config.dbUser(), config.dbPassword(), config);
+            System.out.printf("Seeded %d users x %d tasks in %d ms%n", config.users(), config.tasksPerUser(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - seedStart));
+
+            Map<String, Object> report = run(config, dataset, "http://localhost:" + port, probe);
+            Path output = Path.of(System.getProperty("loadtest.report", "target/loadtest-report.json"));
+            Files.createDirectories(output.toAbsolutePath().getParent());
+            Jackson2ObjectMapperBuilder.json().build().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output.toFile(), report);
+            System.out.println("Report written to " + output.toAbsolutePath());
+            exitCode = ((List<?>) report.get("sqlBudgetViolations")).isEmpty() ? 0 : 1;
+        } finally {
+            app.close();
+            if (embedded != null) {
+                embedded.close();
+            }
+        }
+        System.exit(exitCode);
+    }
+
+    private static Map<String, Object> appProperties(LoadTestConfig config, String jdbcUrl) {
+        Map<String, Object> props = new HashMap<>();
+        props.put("server.port", 0);
+        props.put("management.server.port", 0);
+        props.put("spring.datasource.url", jdbcUrl + (jdbcUrl.contains("?") ? "&" : "?") + "reWriteBatchedInserts=true");
+        props.put("spring.datasource.username", config.dbUser());
+        props.put("spring.datasource.password", config.dbPassword());
+        props.put("spring.threads.virtual.enabled", config.virtualThreads());
+        props.put("app.jwt.secret", JWT_SECRET);
+        props.put("app.rate-limit.enabled", false); // mọi client đều từ 127.0.0.1
+        props.put("google.client-id", "loadtest");
+        props.put("google.client-secret", "loadtest");
+        props.put("google.certs-url", "http://127.0.0.1:9/certs");
+        props.put("spring.mail.host", "127.0.0.1");
+        props.put("spring.mail.port", 2525);
+        props.put("spring.mail.username", "loadtest");
+        props.put("spring.mail.password", "loadtest");
+        props.put("spring.jpa.show-sql", false);
+        props.put("spring.jpa.properties.hibernate.format_sql", false);
+        props.put("spring.jpa.properties.hibernate.session_factory.statement_inspector",
+                RequestProbe.CountingStatementInspector.class.getName());
+        props.put("logging.level.root", "WARN");
+        props.put("logging.level.com.example.todo", "WARN");
+        props.put("logging.level.org.hibernate.SQL", "WARN");
+        props.put("logging.level.org.hibernate.orm.jdbc.bind", "WARN");
+        props.put("logging.level.org.hibernate.type.descriptor.sql.BasicBinder", "WARN");
+        props.put("logging.level.org.springframework", "WARN");
+        props.put("logging.level.org.springframework.security", "WARN");
+        props.put("logging.level.com.example.todo.security", "WARN");
+        return props;
+    }
+
+    private static Map<String, Object> run(LoadTestConfig config, DatasetSeeder.Dataset dataset, String baseUrl,
+                                           RequestProbe probe) throws InterruptedException {
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        ObjectMapper objectMapper = new ObjectMapper();
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<LatencyRecorder> recorders = new ArrayList<>();
+        ExecutorService clients = Executors.newFixedThreadPool(config.clients());
+        for (int i = 0; i < config.clients(); i++) {
+            LatencyRecorder recorder = new LatencyRecorder();
+            recorders.add(recorder);
+            clients.execute(new LoadClient(i, baseUrl, http, objectMapper, dataset, config, recorder, running));
+        }
+
+        System.out.printf("Warming up for %ds with %d clients...%n", config.warmup().toSeconds(), config.clients());
+        Thread.sleep(config.warmup().toMillis());
+
+        probe.reset();
+        long gcCountBefore = gcCount();
+        long gcTimeBefore = gcTime();
+        recorders.forEach(LatencyRecorder::start);
+        long start = System.nanoTime();
+        System.out.printf("Measuring for %ds...%n", config.duration().toSeconds());
+        Thread.sleep(config.duration().toMillis());
+        recorders.forEach(LatencyRecorder::stop);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long gcCount = gcCount() - gcCountBefore;
+        long gcTime = gcTime() - gcTimeBefore;
+        Map<String, RequestProbe.EndpointCounters> server = probe.snapshot();
+
+        running.set(false);
+        clients.shutdown();
+        clients.awaitTermination(1, TimeUnit.MINUTES);
+
+        Map<String, LatencyRecorder.Samples> merged = new TreeMap<>();
+        for (LatencyRecorder recorder : recorders) {
+            recorder.samples().forEach((endpoint, samples) ->
+                    merged.computeIfAbsent(endpoint, key -> new LatencyRecorder.Samples()).addAll(samples));
+        }
+        return report(config, seconds, merged, server, gcCount, gcTime);
+    }
+
+    private static Map<String, Object> report(LoadTestConfig config, double seconds,
+                                              Map<String, LatencyRecorder.Samples> client,
+                                              Map<String, RequestProbe.EndpointCounters> server,
+                                              long gcCount, long gcTimeMillis) {
+        System.out.println();
+        System.out.printf("%-32s %8s %6s %9s %8s %8s %8s %8s %10s %9s %8s%n",
+                "endpoint", "count", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "alloc KB", "alloc MB/s", "sql/req");
+
+        List<Map<String, Object>> endpoints = new ArrayList<>();
+        List<String> sqlBudgetViolations = new ArrayList<>();
+        long total = 0;
+        long totalErrors = 0;
+        for (Map.Entry<String, LatencyRecorder.Samples> entry : client.entrySet()) {
+            LatencyRecorder.Samples samples = entry.getValue();
+            samples.sort();
+            RequestProbe.EndpointCounters counters = server.get(entry.getKey());
+            long serverRequests = counters != null ? counters.requests.sum() : 0;
+            long allocationSamples = counters != null ? counters.allocationSamples.sum() : 0;
+            Double allocPerRequest = allocationSamples > 0 ? (double) counters.allocatedBytes.sum() / allocationSamples : null;
+            double statementsPerRequest = serverRequests > 0 ? (double) counters.statements.sum() / serverRequests : 0;
+            double rps = samples.count / seconds;
+
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("endpoint", entry.getKey());
+            row.put("count", samples.count);
+            row.put("errors", samples.errors);
+            row.put("throughput", rps);
+            row.put("p50Ms", samples.percentile(50) / 1e6);
+            row.put("p95Ms", samples.percentile(95) / 1e6);
+            row.put("p99Ms", samples.percentile(99) / 1e6);
+            row.put("maxMs", samples.percentile(100) / 1e6);
+            row.put("allocatedBytesPerRequest", allocPerRequest);
+            row.put("allocationMBPerSecond",
+                    allocPerRequest != null ? allocPerRequest * (serverRequests / seconds) / (1024 * 1024) : null);
+            row.put("sqlStatementsPerRequest", statementsPerRequest);
+            endpoints.add(row);
+            total += samples.count;
+            totalErrors += samples.errors;
+            Double budget = SQL_BUDGETS.get(entry.getKey());
+            if (budget != null && statementsPerRequest > budget) {
+                sqlBudgetViolations.add(String.format("%s: %.2f sql/req > %.0f", entry.getKey(), statementsPerRequest, budget));
+            }
+
+            System.out.printf("%-32s %8d %6d %9.1f %8.2f %8.2f %8.2f %8.2f %10s %9s %8.2f%n",
+                    entry.getKey(), samples.count, samples.errors, rps,
+                    row.get("p50Ms"), row.get("p95Ms"), row.get("p99Ms"), row.get("maxMs"),
+                    allocPerRequest != null ? String.format("%.1f", allocPerRequest / 1024) : "n/a",
+                    allocPerRequest != null ? String.format("%.2f", row.get("allocationMBPerSecond")) : "n/a",
+                    statementsPerRequest);
+        }
+        System.out.printf("%nTotal: %d requests, %d errors, %.1f req/s over %.1fs; GC: %d collections, %d ms%n",
+                total, totalErrors, total / seconds, seconds, gcCount, gcTimeMillis);
+        sqlBudgetViolations.forEach(violation -> System.out.println("SQL budget exceeded: " + violation));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("config", config);
+        report.put("javaVersion", System.getProperty("java.version"));
+        report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        report.put("measuredSeconds", seconds);
+        report.put("totalRequests", total);
+        report.put("totalErrors", totalErrors);
+        report.put("throughput", total / seconds);
+        report.put("gcCollections", gcCount);
+        report.put("gcTimeMs", gcTimeMillis);
+        report.put("endpoints", endpoints);
+        report.put("sqlBudgetViolations", sqlBudgetViolations);
+        return report;
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount).filter(c -> c > 0).sum();
+    }
+
+    private static long gcTime() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime).filter(t -> t > 0).sum();
+    }
+}
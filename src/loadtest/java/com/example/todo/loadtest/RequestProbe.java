@@ -0,0 +1,77 @@
+package com.example.todo.loadtest;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Đo phía server cho từng endpoint: số byte cấp phát trên thread xử lý request và số câu SQL Hibernate chạy.
+ * Phần chạy trên thread khác (async dispatch của export/SSE) không được tính; ở chế độ virtual thread JVM
+ * không đo được cấp phát theo thread nên cột này bỏ trống.
+ */
+public class RequestProbe implements Filter {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final ThreadLocal<long[]> STATEMENTS = ThreadLocal.withInitial(() -> new long[1]);
+
+    static final class EndpointCounters {
+        final LongAdder requests = new LongAdder();
+        final LongAdder allocatedBytes = new LongAdder();
+        // Số request đo được cấp phát (JVM trả -1 trên virtual thread, những request đó không tính)
+        final LongAdder allocationSamples = new LongAdder();
+        final LongAdder statements = new LongAdder();
+    }
+
+    private final Map<String, EndpointCounters> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        long[] statements = STATEMENTS.get();
+        statements[0] = 0;
+        long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            long allocatedAfter = THREADS.getCurrentThreadAllocatedBytes();
+            HttpServletRequest http = (HttpServletRequest) request;
+            Object pattern = http.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String endpoint = http.getMethod() + " " + (pattern != null ? pattern : http.getRequestURI());
+            EndpointCounters endpointCounters = counters.computeIfAbsent(endpoint, key -> new EndpointCounters());
+            endpointCounters.requests.increment();
+            if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+                endpointCounters.allocatedBytes.add(allocatedAfter - allocatedBefore);
+                endpointCounters.allocationSamples.increment();
+            }
+            endpointCounters.statements.add(statements[0]);
+        }
+    }
+
+    Map<String, EndpointCounters> snapshot() {
+        return Map.copyOf(counters);
+    }
+
+    void reset() {
+        counters.clear();
+    }
+
+    // Đăng ký qua hibernate.session_factory.statement_inspector, đếm câu SQL trên thread hiện tại
+    public static class CountingStatementInspector implements StatementInspector {
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.get()[0]++;
+            return sql;
+        }
+    }
+}
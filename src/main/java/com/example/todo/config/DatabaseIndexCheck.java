@@ -0,0 +1,87 @@
+package com.example.todo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Kiểm tra lúc khởi động: các index mà query của app dựa vào có tồn tại và hợp lệ không.
+ * Index tạo bằng CREATE INDEX CONCURRENTLY bị lỗi giữa chừng vẫn nằm trong catalog nhưng indisvalid = false,
+ * planner bỏ qua nó, nên cũng được báo. Chỉ log WARN, không chặn khởi động.
+ */
+@Component
+@ConditionalOnProperty(name = "app.db.index-check.enabled", havingValue = "true", matchIfMissing = true)
+public class DatabaseIndexCheck {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseIndexCheck.class);
+
+    // Tên index -> query dùng nó (giữ đồng bộ với db/migration)
+    static final Map<String, String> EXPECTED_INDEXES = Map.ofEntries(
+            Map.entry("idx_tasks_user_id_id", "TaskRepository.findViewsByUserId, /api/tasks/page sort=id"),
+            Map.entry("idx_tasks_user_completed_id", "/api/tasks/page?completed="),
+            Map.entry("idx_tasks_user_completed_at", "/api/tasks/page sort=completedAt"),
+            Map.entry("idx_task_occurrences_user_occurs_at", "TaskAgendaService.findAgenda"),
+            Map.entry("idx_task_occurrences_recurring_occurs_at", "TaskOccurrenceIndex.extendWindow trim"),
+            Map.entry("idx_tasks_user_change_version", "TaskRepository.findChanged"),
+            Map.entry("idx_task_details_task_id_covering", "Task -> TaskDetail join"),
+            Map.entry("idx_task_details_due_date_task_id", "/api/tasks/page sort=dueDate"),
+            Map.entry("idx_task_tombstones_user_change_version", "TaskTombstoneRepository delta sync"),
+            Map.entry("idx_task_tombstones_deleted_at", "TaskTombstoneCleanupService.purgeExpired"),
+            Map.entry("idx_otps_email_otp_code", "JpaOtpStore: OtpRepository.findFirstByEmailOrderByIdDesc / deleteByEmail"),
+            Map.entry("idx_otps_expires_at", "OtpCleanupService.cleanupExpiredOtps (app.otp.store=jpa)"),
+            Map.entry("idx_mail_outbox_pending_next_attempt", "MailOutboxRepository.claimDue"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String schema;
+
+    public DatabaseIndexCheck(JdbcTemplate jdbcTemplate,
+                              @Value("${spring.flyway.default-schema:todo_schema}") String schema) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.schema = schema;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkIndexes() {
+        Map<String, Boolean> present = new HashMap<>();
+        try {
+            jdbcTemplate.query("""
+                            SELECT c.relname, i.indisvalid
+                            FROM pg_index i
+                            JOIN pg_class c ON c.oid = i.indexrelid
+                            JOIN pg_namespace n ON n.oid = c.relnamespace
+                            WHERE n.nspname = ?""",
+                    rs -> {
+                        present.put(rs.getString(1), rs.getBoolean(2));
+                    },
+                    schema);
+        } catch (DataAccessException e) {
+            logger.warn("Could not check database indexes: {}", e.getMessage());
+            return;
+        }
+
+        int problems = 0;
+        for (Map.Entry<String, String> expected : EXPECTED_INDEXES.entrySet()) {
+            Boolean valid = present.get(expected.getKey());
+            if (valid == null) {
+                problems++;
+                logger.warn("Missing index {}.{} (used by {})", schema, expected.getKey(), expected.getValue());
+            } else if (!valid) {
+                problems++;
+                logger.warn("Index {}.{} is INVALID, probably a failed concurrent build; drop and recreate it (used by {})",
+                        schema, expected.getKey(), expected.getValue());
+            }
+        }
+        if (problems == 0) {
+            logger.info("All {} expected indexes present in schema {}", EXPECTED_INDEXES.size(), schema);
+        }
+    }
+}
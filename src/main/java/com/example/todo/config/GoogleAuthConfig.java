@@ -0,0 +1,37 @@
+package com.example.todo.config;
+
+import com.google.api.client.googleapis.auth.oauth2.GoogleIdTokenVerifier;
+import com.google.api.client.googleapis.auth.oauth2.GooglePublicKeysManager;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Configuration
+public class GoogleAuthConfig {
+
+    // ✅ Transport + key manager + verifier dùng chung: chứng chỉ ký của Google được cache theo Cache-Control
+    @Bean
+    public NetHttpTransport googleHttpTransport() {
+        return new NetHttpTransport();
+    }
+
+    @Bean
+    public GooglePublicKeysManager googlePublicKeysManager(NetHttpTransport googleHttpTransport,
+                                                           @Value("${google.certs-url:https://www.googleapis.com/oauth2/v1/certs}") String certsUrl) {
+        return new GooglePublicKeysManager.Builder(googleHttpTransport, JacksonFactory.getDefaultInstance())
+                .setPublicCertsEncodedUrl(certsUrl)
+                .build();
+    }
+
+    @Bean
+    public GoogleIdTokenVerifier googleIdTokenVerifier(GooglePublicKeysManager googlePublicKeysManager,
+                                                       @Value("${google.client-id}") String googleClientId) {
+        return new GoogleIdTokenVerifier.Builder(googlePublicKeysManager)
+                .setAudience(List.of(googleClientId))
+                .build();
+    }
+}
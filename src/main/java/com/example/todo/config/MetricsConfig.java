@@ -0,0 +1,95 @@
+package com.example.todo.config;
+
+import com.example.todo.security.PasswordHashingService;
+import com.example.todo.security.RateLimitFilter;
+import com.example.todo.service.InMemoryOtpStore;
+import com.example.todo.service.MailOutboxService;
+import com.example.todo.service.TaskListCache;
+import com.example.todo.service.TaskStreamService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Xuất các bộ đếm sẵn có của service ra Micrometer.
+ * Service chỉ giữ LongAdder/AtomicLong, meter đọc giá trị lúc scrape nên không thêm chi phí vào hot path.
+ * Timer endpoint (http.server.requests), repository (spring.data.repository.invocations)
+ * và pool Hikari (hikaricp.*) do Spring Boot Actuator tự đăng ký.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder mailOutboxMetrics(MailOutboxService outbox) {
+        return registry -> {
+            Gauge.builder("mail.outbox.pending", outbox, MailOutboxService::getPendingEstimate)
+                    .description("Pending mails as of the last dispatch run")
+                    .register(registry);
+            FunctionCounter.builder("mail.outbox.enqueued", outbox, MailOutboxService::getEnqueued).register(registry);
+            FunctionCounter.builder("mail.outbox.rejected", outbox, MailOutboxService::getRejected).register(registry);
+            FunctionCounter.builder("mail.outbox.sent", outbox, MailOutboxService::getSent).register(registry);
+            FunctionCounter.builder("mail.outbox.retried", outbox, MailOutboxService::getRetried).register(registry);
+            FunctionCounter.builder("mail.outbox.dead.lettered", outbox, MailOutboxService::getDeadLettered).register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder rateLimitMetrics(RateLimitFilter rateLimitFilter) {
+        return registry -> {
+            FunctionCounter.builder("rate.limit.requests", rateLimitFilter, RateLimitFilter::getAllowed)
+                    .tag("result", "allowed").register(registry);
+            FunctionCounter.builder("rate.limit.requests", rateLimitFilter, RateLimitFilter::getLimited)
+                    .tag("result", "limited").register(registry);
+            FunctionCounter.builder("rate.limit.overflow", rateLimitFilter, RateLimitFilter::getOverflow)
+                    .description("Requests let through because the bucket table was full")
+                    .register(registry);
+            Gauge.builder("rate.limit.keys", rateLimitFilter, RateLimitFilter::getTrackedKeys).register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder passwordHashingMetrics(PasswordHashingService hashing) {
+        return registry -> {
+            // password.hashing, password.hashing.queue.wait và password.hashing.rejected do service tự ghi
+            Gauge.builder("password.hashing.queue.depth", hashing, PasswordHashingService::getQueueDepth).register(registry);
+            Gauge.builder("password.hashing.active", hashing, PasswordHashingService::getActiveCount).register(registry);
+            Gauge.builder("password.hashing.pool.size", hashing, PasswordHashingService::getPoolSize).register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder otpStoreMetrics(ObjectProvider<InMemoryOtpStore> otpStore) {
+        // Chỉ có khi app.otp.store=memory; store JPA đã có metric repository + otp.cleanup.*
+        return registry -> otpStore.ifAvailable(store -> {
+            Gauge.builder("otp.store.size", store, InMemoryOtpStore::getSize).register(registry);
+            FunctionCounter.builder("otp.store.expired", store, InMemoryOtpStore::getExpired).register(registry);
+        });
+    }
+
+    @Bean
+    public MeterBinder taskListCacheMetrics(TaskListCache taskListCache) {
+        return registry -> {
+            if (taskListCache.getNativeCache() == null) {
+                return;
+            }
+            // cache.gets{result=hit|miss}, cache.evictions, cache.size... với tag cache=tasks.list
+            CaffeineCacheMetrics.monitor(registry, taskListCache.getNativeCache(), "tasks.list");
+            Gauge.builder("tasks.list.cache.weight", taskListCache, TaskListCache::getWeightedSize)
+                    .baseUnit("bytes").register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder taskStreamMetrics(TaskStreamService streams) {
+        return registry -> {
+            Gauge.builder("tasks.stream.open", streams, TaskStreamService::getOpenStreams).register(registry);
+            FunctionCounter.builder("tasks.stream.dropped", streams, TaskStreamService::getDroppedEvents)
+                    .description("Events dropped because a subscriber buffer was full")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.todo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.http.Outcome;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+/**
+ * Đo thời gian các lời gọi HTTP ra ngoài (Google token endpoint, avatar...) dưới metric http.client.requests.
+ * Tag client.name thay cho uri để không nổ cardinality với URL avatar tuỳ ý.
+ */
+@Component
+public class OutboundHttpMetrics {
+
+    private static final String METRIC = "http.client.requests";
+
+    private final MeterRegistry registry;
+
+    public OutboundHttpMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public <T> HttpResponse<T> send(HttpClient client, String clientName, HttpRequest request,
+                                    HttpResponse.BodyHandler<T> handler) throws IOException, InterruptedException {
+        Timer.Sample sample = Timer.start(registry);
+        String status = "IO_ERROR";
+        String outcome = Outcome.UNKNOWN.name();
+        String exception = "none";
+        try {
+            HttpResponse<T> response = client.send(request, handler);
+            status = Integer.toString(response.statusCode());
+            outcome = Outcome.forStatus(response.statusCode()).name();
+            return response;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder(METRIC)
+                    .description("Outbound HTTP requests")
+                    .tag("client.name", clientName)
+                    .tag("method", request.method())
+                    .tag("status", status)
+                    .tag("outcome", outcome)
+                    .tag("exception", exception)
+                    .register(registry));
+        }
+    }
+}
@@ -4,42 +4,34 @@ import com.example.todo.dto.ErrorResponse;
 import com.example.todo.dto.LoginRequest;
 import com.example.todo.dto.LoginResponse;
 import com.example.todo.dto.SignUpRequest;
-import com.example.todo.entity.Otp;
 import com.example.todo.entity.User;
-import com.example.todo.repository.OtpRepository;
 import com.example.todo.repository.UserRepository;
+import com.example.todo.security.AccountRevocationCache;
 import com.example.todo.security.JwtService;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.todo.security.PasswordHashingOverloadedException;
+import com.example.todo.security.PasswordHashingService;
+import com.example.todo.service.AccountService;
+import com.example.todo.service.AvatarService;
+import com.example.todo.service.GoogleOAuthClient;
+import com.example.todo.service.MailBacklogFullException;
+import com.example.todo.service.MailOutboxService;
+import com.example.todo.service.OtpStore;
 import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
-import com.google.api.client.googleapis.auth.oauth2.GoogleIdTokenVerifier;
-import com.google.api.client.http.javanet.NetHttpTransport;
-import com.google.api.client.json.jackson2.JacksonFactory;
 import jakarta.validation.Valid;
 import lombok.Getter;
 import lombok.Setter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ETag;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 import org.springframework.web.bind.annotation.*;
 
-import java.net.URI;
-import java.net.URLEncoder;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.nio.charset.StandardCharsets;
-import java.time.LocalDateTime;
-import java.util.Collections;
+import java.time.Instant;
 import java.util.Optional;
-import java.util.Random;
 import java.util.regex.Pattern;
 
 @RestController
@@ -48,39 +40,58 @@ import java.util.regex.Pattern;
 public class AuthController {
 
     private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
-    private static final Pattern PASSWORD_PATTERN =
+    // package-private để benchmark (src/jmh) dùng lại đúng pattern
+    static final Pattern PASSWORD_PATTERN =
             Pattern.compile("^(?=.*[a-z])(?=.*[A-Z])(?=.*\\d).{8,}$");
 
-    @Value("${google.client-id}")
-    private String googleClientId;
-
-    @Value("${google.client-secret}")
-    private String googleClientSecret;
-
     @Autowired private UserRepository userRepository;
-    @Autowired private OtpRepository otpRepository;
-    @Autowired private BCryptPasswordEncoder passwordEncoder;
-    @Autowired private JavaMailSender mailSender;
+    @Autowired private OtpStore otpStore;
+    @Autowired private PasswordHashingService passwordHashingService;
+    @Autowired private MailOutboxService mailOutboxService;
     @Autowired private JwtService jwtService;
+    @Autowired private AccountRevocationCache accountRevocationCache;
+    @Autowired private AccountService accountService;
+    @Autowired private AvatarService avatarService;
+    @Autowired private GoogleOAuthClient googleOAuthClient;
 
     /* ==================== LOGIN ==================== */
     @PostMapping("/login")
     public ResponseEntity<?> login(@Valid @RequestBody LoginRequest request) {
         logger.info("Login attempt for email: {}", request.getEmail());
         User user = userRepository.findByEmail(request.getEmail()).orElse(null);
-        if (user == null || !passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+        if (user == null || !passwordHashingService.matches(request.getPassword(), user.getPassword())) {
             logger.warn("Failed login attempt for email: {}", request.getEmail());
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(new ErrorResponse("Invalid email or password"));
         }
+        if (passwordHashingService.needsRehash(user.getPassword())) {
+            rehashInBackground(user, request.getPassword());
+        }
 
-        String token = jwtService.generateToken(user.getEmail());
+        String token = jwtService.generateToken(user.getId(), user.getEmail());
 
         return ResponseEntity.ok(
                 new LoginResponse(user.getId(), user.getName(), user.getEmail(), token, user.getAvatar())
         );
     }
 
+    // Hash cũ dùng cost thấp hơn cấu hình hiện tại → băm lại ở nền, không làm chậm lần login này
+    private void rehashInBackground(User user, String rawPassword) {
+        Long userId = user.getId();
+        String oldHash = user.getPassword();
+        passwordHashingService.hashInBackground(rawPassword).whenComplete((newHash, error) -> {
+            if (error != null) {
+                logger.debug("Skipped password rehash for user id={}: {}", userId, error.getMessage());
+                return;
+            }
+            try {
+                userRepository.updatePasswordIfUnchanged(userId, oldHash, newHash);
+            } catch (Exception e) {
+                logger.warn("Failed to store rehashed password for user id={}: {}", userId, e.getMessage());
+            }
+        });
+    }
+
     /* ==================== SIGNUP ==================== */
     @PostMapping("/signup")
     public ResponseEntity<?> signup(@Valid @RequestBody SignUpRequest request) {
@@ -97,7 +108,7 @@ public class AuthController {
         User user = new User();
         user.setName(request.getName());
         user.setEmail(request.getEmail());
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
+        user.setPassword(passwordHashingService.hash(request.getPassword()));
         user.setAvatar(null);
         userRepository.save(user);
 
@@ -121,42 +132,14 @@ public class AuthController {
             }
 
             // 1. Đổi code -> token
-            String tokenEndpoint = "https://oauth2.googleapis.com/token";
-            String body = "code=" + URLEncoder.encode(code, StandardCharsets.UTF_8)
-                    + "&client_id=" + URLEncoder.encode(googleClientId, StandardCharsets.UTF_8)
-                    + "&client_secret=" + URLEncoder.encode(googleClientSecret, StandardCharsets.UTF_8)
-                    + "&redirect_uri=" + URLEncoder.encode(redirectUri, StandardCharsets.UTF_8)
-                    + "&grant_type=authorization_code";
-
-            HttpClient client = HttpClient.newHttpClient();
-            HttpRequest tokenRequest = HttpRequest.newBuilder()
-                    .uri(URI.create(tokenEndpoint))
-                    .header("Content-Type", "application/x-www-form-urlencoded")
-                    .header("Accept", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(body))
-                    .build();
-
-            HttpResponse<String> tokenResponse = client.send(tokenRequest, HttpResponse.BodyHandlers.ofString());
-            logger.debug("Google token endpoint status: {}", tokenResponse.statusCode());
-            logger.debug("Google token response body: {}", tokenResponse.body());
-
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode jsonNode = mapper.readTree(tokenResponse.body());
-
-            if (tokenResponse.statusCode() != 200 || !jsonNode.has("id_token")) {
-                logger.warn("Failed to retrieve Google ID token. Status: {}, body: {}", tokenResponse.statusCode(), tokenResponse.body());
+            String idToken = googleOAuthClient.exchangeCode(code, redirectUri);
+            if (idToken == null) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                         .body(new ErrorResponse("Failed to retrieve Google ID token"));
             }
 
-            // 2. Verify ID token
-            String idToken = jsonNode.get("id_token").asText();
-            GoogleIdTokenVerifier verifier = new GoogleIdTokenVerifier.Builder(
-                    new NetHttpTransport(), JacksonFactory.getDefaultInstance())
-                    .setAudience(Collections.singletonList(googleClientId))
-                    .build();
-
-            GoogleIdToken googleIdToken = verifier.verify(idToken);
+            // 2. Verify ID token (verifier + chứng chỉ Google được cache dùng chung)
+            GoogleIdToken googleIdToken = googleOAuthClient.verify(idToken);
             if (googleIdToken == null) {
                 logger.warn("GoogleIdToken verification returned null");
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
@@ -193,7 +176,7 @@ public class AuthController {
                 User newUser = new User();
                 newUser.setEmail(email);
                 newUser.setName(name != null ? name : email);
-                newUser.setPassword(passwordEncoder.encode("google-user-" + System.currentTimeMillis()));
+                newUser.setPassword(passwordHashingService.hash("google-user-" + System.currentTimeMillis()));
                 newUser.setAvatar(pictureUrl); // có thể null
                 try {
                     user = userRepository.save(newUser);
@@ -206,13 +189,15 @@ public class AuthController {
             }
 
             // 5. Tạo JWT bằng JwtService
-            String jwt = jwtService.generateToken(user.getEmail());
+            String jwt = jwtService.generateToken(user.getId(), user.getEmail());
             logger.info("Google login success for email={}, returning jwt and user id={}", user.getEmail(), user.getId());
 
             return ResponseEntity.ok(
                     new LoginResponse(user.getId(), user.getName(), user.getEmail(), jwt, user.getAvatar())
             );
 
+        } catch (PasswordHashingOverloadedException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Google login failed: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -228,27 +213,19 @@ public class AuthController {
             return ResponseEntity.badRequest().body(new ErrorResponse("Email not found"));
         }
 
-        String otpCode = String.format("%06d", new Random().nextInt(999999));
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime expiresAt = now.plusMinutes(5);
-
-        otpRepository.deleteByEmail(request.getEmail());
-        Otp otp = new Otp();
-        otp.setEmail(request.getEmail());
-        otp.setOtpCode(otpCode);
-        otp.setCreatedAt(now);
-        otp.setExpiresAt(expiresAt);
-        otpRepository.save(otp);
+        String otpCode = otpStore.issue(request.getEmail());
 
+        // Mail được ghi vào outbox cùng transaction, job nền gửi sau khi commit
         try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setTo(request.getEmail());
-            message.setSubject("Your OTP for Password Reset");
-            message.setText("Your OTP is: " + otpCode + "\nThis OTP is valid for 5 minutes.");
-            mailSender.send(message);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new ErrorResponse("Failed to send OTP"));
+            mailOutboxService.enqueue(request.getEmail(), "Your OTP for Password Reset",
+                    "Your OTP is: " + otpCode + "\nThis OTP is valid for " + otpStore.getTtl().toMinutes() + " minutes.");
+        } catch (MailBacklogFullException e) {
+            // Store trong bộ nhớ không theo transaction nên huỷ OTP tay
+            otpStore.invalidate(request.getEmail());
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header("Retry-After", "60")
+                    .body(new ErrorResponse("Failed to send OTP, please try again later"));
         }
 
         return ResponseEntity.ok("OTP sent to your email");
@@ -256,23 +233,16 @@ public class AuthController {
 
     @PostMapping("/verify-otp")
     public ResponseEntity<?> verifyOtp(@RequestBody VerifyOtpRequest request) {
-        Optional<Otp> otpOptional = otpRepository.findByEmailAndOtpCode(request.getEmail(), request.getOtpCode());
-        if (otpOptional.isEmpty()) {
-            return ResponseEntity.badRequest().body(new ErrorResponse("Invalid OTP"));
-        }
-
-        Otp otp = otpOptional.get();
-        if (LocalDateTime.now().isAfter(otp.getExpiresAt())) {
-            otpRepository.delete(otp);
-            return ResponseEntity.badRequest().body(new ErrorResponse("OTP has expired"));
-        }
-
-        otpRepository.delete(otp);
-        return ResponseEntity.ok("OTP verified successfully");
+        return switch (otpStore.verify(request.getEmail(), request.getOtpCode())) {
+            case VERIFIED -> ResponseEntity.ok("OTP verified successfully");
+            case EXPIRED -> ResponseEntity.badRequest().body(new ErrorResponse("OTP has expired"));
+            case TOO_MANY_ATTEMPTS -> ResponseEntity.badRequest()
+                    .body(new ErrorResponse("Too many invalid attempts, please request a new OTP"));
+            case INVALID -> ResponseEntity.badRequest().body(new ErrorResponse("Invalid OTP"));
+        };
     }
 
     @PostMapping("/change-password")
-    @Transactional
     public ResponseEntity<?> changePassword(@RequestBody ChangePasswordRequest request) {
         if (!request.getPassword().equals(request.getConfirm())) {
             return ResponseEntity.badRequest().body(new ErrorResponse("Passwords do not match"));
@@ -280,57 +250,58 @@ public class AuthController {
         if (!PASSWORD_PATTERN.matcher(request.getPassword()).matches()) {
             return ResponseEntity.badRequest().body(new ErrorResponse("Password must be strong"));
         }
-
-        User user = userRepository.findByEmail(request.getEmail()).orElse(null);
-        if (user == null) {
+        if (!userRepository.existsByEmail(request.getEmail())) {
             return ResponseEntity.badRequest().body(new ErrorResponse("Email not found"));
         }
 
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
-        userRepository.save(user);
-        otpRepository.deleteByEmail(request.getEmail());
+        // Băm ngoài transaction: BCrypt mất hàng trăm ms, không giữ connection JDBC trong lúc đó
+        String passwordHash = passwordHashingService.hash(request.getPassword());
+        // Đổi mật khẩu → vô hiệu hoá các JWT đã phát hành trước đó (lưu cả vào DB cho lần kiểm tra bằng DB)
+        Instant revokedAt = Instant.now();
+        if (!accountService.changePassword(request.getEmail(), passwordHash, revokedAt)) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("Email not found"));
+        }
+        accountRevocationCache.revoke(request.getEmail(), revokedAt);
 
         return ResponseEntity.ok("Password changed successfully");
     }
 
     /* ==================== AVATAR PROXY ==================== */
     @GetMapping("/avatar/{userId}")
-    public ResponseEntity<byte[]> getAvatar(@PathVariable Long userId) {
+    public ResponseEntity<byte[]> getAvatar(@PathVariable Long userId,
+                                            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         try {
-            Optional<User> userOpt = userRepository.findById(userId);
-            if (userOpt.isEmpty()) {
+            Optional<AvatarService.Avatar> avatarOpt = avatarService.getAvatar(userId);
+            if (avatarOpt.isEmpty()) {
                 return ResponseEntity.notFound().build();
             }
-            
-            User user = userOpt.get();
-            if (user.getAvatar() == null || user.getAvatar().isEmpty()) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            // Download avatar từ Google
-            HttpClient client = HttpClient.newHttpClient();
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(user.getAvatar()))
-                    .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36")
-                    .build();
-            
-            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
-            
-            if (response.statusCode() == 200) {
-                return ResponseEntity.ok()
-                        .header("Content-Type", "image/jpeg")
+
+            AvatarService.Avatar avatar = avatarOpt.get();
+            // Browser đã có đúng bản này thì không gửi lại ảnh
+            if (ifNoneMatch != null && ifNoneMatchHits(ifNoneMatch, avatar.etag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(avatar.etag())
                         .header("Cache-Control", "public, max-age=3600")
-                        .body(response.body());
-            } else {
-                return ResponseEntity.notFound().build();
+                        .build();
             }
-            
+            return ResponseEntity.ok()
+                    .header("Content-Type", avatar.contentType())
+                    .header("Cache-Control", "public, max-age=3600")
+                    .eTag(avatar.etag())
+                    .body(avatar.bytes());
+
         } catch (Exception e) {
             logger.error("Error fetching avatar for user {}: {}", userId, e.getMessage());
             return ResponseEntity.internalServerError().build();
         }
     }
 
+    // If-None-Match là danh sách ETag (có thể W/), so sánh yếu theo RFC 9110 §13.1.2; "*" khớp mọi bản
+    private static boolean ifNoneMatchHits(String ifNoneMatch, String etag) {
+        ETag current = ETag.create(etag);
+        return ETag.parse(ifNoneMatch).stream().anyMatch(tag -> tag.isWildcard() || tag.compare(current, false));
+    }
+
     /* ==================== DTOs ==================== */
     @Getter @Setter
     public static class CodeRequest {
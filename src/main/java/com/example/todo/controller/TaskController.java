@@ -1,18 +1,39 @@
 package com.example.todo.controller;
 
-import com.example.todo.entity.User;
+import com.example.todo.dto.ErrorResponse;
+import com.example.todo.dto.TaskAgendaEntry;
+import com.example.todo.dto.TaskBatchRequest;
+import com.example.todo.dto.TaskBatchResult;
+import com.example.todo.dto.TaskChangesResponse;
+import com.example.todo.dto.TaskCursor;
+import com.example.todo.dto.TaskPageResponse;
+import com.example.todo.dto.TaskPatch;
 import com.example.todo.model.Task;
-import com.example.todo.model.TaskDetail;
 import com.example.todo.repository.TaskRepository;
-import com.example.todo.repository.UserRepository;
+import com.example.todo.security.AuthenticatedUser;
+import com.example.todo.service.TaskAccessDeniedException;
+import com.example.todo.service.TaskAgendaService;
+import com.example.todo.service.TaskExportService;
+import com.example.todo.service.TaskListCache;
+import com.example.todo.service.TaskNotFoundException;
+import com.example.todo.service.TaskQueryService;
+import com.example.todo.service.TaskService;
+import com.example.todo.service.TaskStreamService;
+import com.example.todo.service.TaskVersionConflictException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.security.Principal;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Optional;
 
 @RestController
 @RequestMapping("/api")
@@ -20,25 +41,101 @@ import java.util.Optional;
 public class TaskController {
 
     private final TaskRepository taskRepository;
-    private final UserRepository userRepository;
+    private final TaskQueryService taskQueryService;
+    private final TaskService taskService;
+    private final TaskStreamService taskStreamService;
+    private final TaskExportService taskExportService;
+    private final TaskListCache taskListCache;
+    private final TaskAgendaService taskAgendaService;
 
-    public TaskController(TaskRepository taskRepository, UserRepository userRepository) {
+    public TaskController(TaskRepository taskRepository, TaskQueryService taskQueryService, TaskService taskService,
+                          TaskStreamService taskStreamService, TaskExportService taskExportService,
+                          TaskListCache taskListCache, TaskAgendaService taskAgendaService) {
         this.taskRepository = taskRepository;
-        this.userRepository = userRepository;
+        this.taskQueryService = taskQueryService;
+        this.taskService = taskService;
+        this.taskStreamService = taskStreamService;
+        this.taskExportService = taskExportService;
+        this.taskListCache = taskListCache;
+        this.taskAgendaService = taskAgendaService;
     }
 
-    // GET: /api/tasks
+    // GET: /api/tasks — JSON được cache theo user, invalidate khi task của user thay đổi
     @GetMapping("/tasks")
-    public ResponseEntity<List<Task>> getTasks(Principal principal) {
-        String email = principal.getName();
-        User user = userRepository.findByEmail(email).orElseThrow();
-        List<Task> tasks = taskRepository.findByUser(user);
-        return ResponseEntity.ok(tasks);
+    public ResponseEntity<byte[]> getTasks(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
+        byte[] body = taskListCache.get(userId, () -> taskRepository.findViewsByUserId(userId));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    // GET: /api/tasks/page?cursor=&limit=&sort=id|dueDate|completedAt&completed=&type=&priority=&dueFrom=&dueTo=
+    @GetMapping("/tasks/page")
+    public ResponseEntity<?> getTaskPage(@RequestParam(required = false) String cursor,
+                                         @RequestParam(defaultValue = "" + TaskQueryService.DEFAULT_PAGE_SIZE) int limit,
+                                         @RequestParam(defaultValue = "id") String sort,
+                                         @RequestParam(required = false) Boolean completed,
+                                         @RequestParam(required = false) String type,
+                                         @RequestParam(required = false) Integer priority,
+                                         @RequestParam(required = false)
+                                         @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dueFrom,
+                                         @RequestParam(required = false)
+                                         @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dueTo,
+                                         @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        try {
+            TaskCursor.Sort sortBy = TaskCursor.Sort.fromParam(sort);
+            TaskCursor after = cursor == null || cursor.isBlank() ? null : TaskCursor.decode(cursor);
+            TaskPageResponse page = taskQueryService.findPage(currentUser.getId(), sortBy, after, limit,
+                    completed, type, priority, dueFrom, dueTo);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    // GET: /api/tasks/changes?since=<version> — delta sync, chỉ trả task thay đổi và id task đã xoá
+    @GetMapping("/tasks/changes")
+    public ResponseEntity<TaskChangesResponse> getChanges(@RequestParam(defaultValue = "0") long since,
+                                                          @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        return ResponseEntity.ok(taskQueryService.findChanges(currentUser.getId(), since));
+    }
+
+    // GET: /api/tasks/agenda?from=&to= — mọi lần xảy ra (kể cả lần lặp của task có repeat) trong [from, to)
+    @GetMapping("/tasks/agenda")
+    public ResponseEntity<?> getAgenda(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                       @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        try {
+            List<TaskAgendaEntry> agenda = taskAgendaService.findAgenda(currentUser.getId(), from, to);
+            return ResponseEntity.ok(agenda);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    // GET: /api/tasks/stream — Server-Sent Events, đẩy "tasks-changed" mỗi khi task của user thay đổi
+    @GetMapping(value = "/tasks/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        return taskStreamService.open(currentUser.getId());
+    }
+
+    // GET: /api/tasks/export?format=json|ndjson — stream toàn bộ lịch sử task, không load hết vào bộ nhớ
+    @GetMapping("/tasks/export")
+    public ResponseEntity<StreamingResponseBody> exportTasks(@RequestParam(defaultValue = "json") String format,
+                                                             @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        TaskExportService.Format exportFormat = TaskExportService.Format.fromParam(format)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported format: " + format));
+        Long userId = currentUser.getId();
+        StreamingResponseBody body = out -> taskExportService.export(userId, exportFormat, out);
+        boolean ndjson = exportFormat == TaskExportService.Format.NDJSON;
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.parseMediaType("application/x-ndjson") : MediaType.APPLICATION_JSON)
+                .header("Content-Disposition", "attachment; filename=\"tasks." + (ndjson ? "ndjson" : "json") + "\"")
+                .body(body);
     }
 
     // POST: /api/tasks
     @PostMapping("/tasks")
-    public ResponseEntity<?> addTask(@RequestBody Task task, Principal principal) {
+    public ResponseEntity<?> addTask(@RequestBody Task task, @AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
             if (task.getTitle() == null || task.getTitle().trim().isEmpty()) {
                 return ResponseEntity
@@ -46,23 +143,56 @@ public class TaskController {
                         .body("Task title is required.");
             }
 
-            String email = principal.getName();
-            User user = userRepository.findByEmail(email).orElseThrow();
+            Task savedTask = taskService.create(currentUser.getId(), task);
+            return ResponseEntity.status(HttpStatus.CREATED).body(savedTask);
 
-            task.setUser(user); // gắn user hiện tại
-            task.setCompleted(false); // mặc định là chưa hoàn thành
-            task.setCompletedAt(null);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error creating task: " + e.getMessage());
+        }
+    }
 
-            if (task.getTaskDetail() != null) {
-                task.getTaskDetail().setTask(task); // set quan hệ ngược
+    // POST: /api/tasks/bulk — tạo nhiều task trong một transaction, INSERT được batch theo JDBC
+    @PostMapping("/tasks/bulk")
+    public ResponseEntity<?> addTasks(@RequestBody List<Task> tasks, @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        if (tasks == null || tasks.isEmpty()) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("At least one task is required."));
+        }
+        if (tasks.size() > TaskService.MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("At most " + TaskService.MAX_BATCH_SIZE + " tasks per request."));
+        }
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            if (task == null || task.getTitle() == null || task.getTitle().trim().isEmpty()) {
+                return ResponseEntity.badRequest().body(new ErrorResponse("Task title is required (index " + i + ")."));
             }
+        }
 
-            Task savedTask = taskRepository.save(task);
-            return ResponseEntity.status(HttpStatus.CREATED).body(savedTask);
-
+        try {
+            List<Task> saved = taskService.createAll(currentUser.getId(), tasks);
+            return ResponseEntity.status(HttpStatus.CREATED).body(saved);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Error creating task: " + e.getMessage());
+                    .body("Error creating tasks: " + e.getMessage());
+        }
+    }
+
+    // POST: /api/tasks/batch — nhiều operation (create/update/complete/uncomplete/delete) trong một transaction
+    @PostMapping("/tasks/batch")
+    public ResponseEntity<?> applyBatch(@RequestBody TaskBatchRequest request,
+                                        @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        if (request == null || request.getOperations() == null || request.getOperations().isEmpty()) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("At least one operation is required."));
+        }
+        if (request.getOperations().size() > TaskService.MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("At most " + TaskService.MAX_BATCH_SIZE + " operations per request."));
+        }
+
+        try {
+            List<TaskBatchResult> results = taskService.applyBatch(currentUser.getId(), request.getOperations());
+            return ResponseEntity.ok(results);
+        } catch (OptimisticLockingFailureException e) {
+            return conflict();
         }
     }
 
@@ -70,67 +200,83 @@ public class TaskController {
     @PutMapping("/tasks/{id}")
     public ResponseEntity<?> updateTask(@PathVariable Long id,
                                         @RequestBody Task updated,
-                                        Principal principal) {
-        String email = principal.getName();
-        User user = userRepository.findByEmail(email).orElseThrow();
-
-        Optional<Task> existingOpt = taskRepository.findById(id);
-        if (existingOpt.isEmpty()) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Task not found with id: " + id);
-        }
-
-        Task task = existingOpt.get();
-        if (!task.getUser().getId().equals(user.getId())) {
+                                        @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        try {
+            Task saved = taskService.update(currentUser.getId(), id, updated);
+            return ResponseEntity.ok().eTag(Long.toString(saved.getVersion())).body(saved);
+        } catch (TaskNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (TaskAccessDeniedException e) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("You do not have permission to update this task");
+        } catch (OptimisticLockingFailureException e) {
+            return conflict();
         }
+    }
 
-        // Cập nhật field cơ bản
-        task.setTitle(updated.getTitle() != null ? updated.getTitle() : task.getTitle());
-        task.setDescription(updated.getDescription()); // cho phép null để clear
-        task.setType(updated.getType());               // cho phép null để clear
-
-        task.setCompleted(updated.isCompleted());
-        task.setCompletedAt(updated.isCompleted() ? LocalDateTime.now() : null);
-
-        // Cập nhật TaskDetail
-        if (updated.getTaskDetail() != null) {
-            TaskDetail detail = task.getTaskDetail();
-            if (detail == null) {
-                detail = new TaskDetail();
-                detail.setTask(task);
-                task.setTaskDetail(detail);
-            }
-
-            // merge dữ liệu, cho phép clear nếu null
-            detail.setDueDate(updated.getTaskDetail().getDueDate());
-            detail.setTime(updated.getTaskDetail().getTime());
-            detail.setDuration(updated.getTaskDetail().getDuration());
-            detail.setRepeat(updated.getTaskDetail().getRepeat());
-            detail.setPriority(updated.getTaskDetail().getPriority());
-            detail.setReminder(updated.getTaskDetail().getReminder());
+    // PATCH: /api/tasks/{id} — chỉ áp dụng field có trong body, trả 204 + ETag (version mới).
+    // If-Match: "<version>" để không ghi đè thay đổi từ thiết bị khác: sai version thì 412
+    @PatchMapping("/tasks/{id}")
+    public ResponseEntity<?> patchTask(@PathVariable Long id,
+                                       @RequestBody TaskPatch patch,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                       @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        if (patch.has("title") && (patch.getTitle() == null || patch.getTitle().trim().isEmpty())) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("Task title is required."));
+        }
+        if (patch.has("completed") && patch.getCompleted() == null) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("completed must be true or false."));
+        }
+        Long expectedVersion;
+        try {
+            expectedVersion = parseIfMatch(ifMatch);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("Invalid If-Match header."));
         }
 
-        Task saved = taskRepository.save(task);
-        return ResponseEntity.ok(saved);
+        try {
+            long version = taskService.patch(currentUser.getId(), id, patch, expectedVersion);
+            return ResponseEntity.noContent().eTag(Long.toString(version)).build();
+        } catch (TaskNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (TaskAccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("You do not have permission to update this task");
+        } catch (TaskVersionConflictException e) {
+            // Có If-Match: điều kiện sai (412). Không có: bị request khác ghi xen giữa (409), client thử lại
+            return ResponseEntity.status(expectedVersion != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT)
+                    .body(new ErrorResponse(e.getMessage()));
+        }
     }
 
     // DELETE: /api/tasks/{id}
     @DeleteMapping("/tasks/{id}")
-    public ResponseEntity<?> deleteTask(@PathVariable Long id, Principal principal) {
-        String email = principal.getName();
-        User user = userRepository.findByEmail(email).orElseThrow();
-
-        Optional<Task> existingOpt = taskRepository.findById(id);
-        if (existingOpt.isEmpty()) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Task not found with id: " + id);
-        }
-
-        Task task = existingOpt.get();
-        if (!task.getUser().getId().equals(user.getId())) {
+    public ResponseEntity<?> deleteTask(@PathVariable Long id, @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        try {
+            taskService.delete(currentUser.getId(), id);
+            return ResponseEntity.noContent().build();
+        } catch (TaskNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (TaskAccessDeniedException e) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("You do not have permission to delete this task");
+        } catch (OptimisticLockingFailureException e) {
+            return conflict();
         }
+    }
 
-        taskRepository.delete(task);
-        return ResponseEntity.noContent().build();
+    // Task bị request khác ghi xen giữa (lỗi @Version lúc flush/commit): 409 để client tải lại rồi thử lại
+    private static ResponseEntity<ErrorResponse> conflict() {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new ErrorResponse("Task was modified by another request, reload and retry"));
+    }
+
+    // If-Match: "5" -> 5; không có hoặc "*" -> null (không kiểm tra). ETag của task luôn là strong
+    private static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() < 3 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            throw new IllegalArgumentException("Invalid If-Match: " + ifMatch);
+        }
+        return Long.parseLong(tag.substring(1, tag.length() - 1));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,12 @@
+package com.example.todo.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một lần xảy ra của task trong GET /api/tasks/agenda (task lặp có nhiều entry, mỗi lần lặp một entry).
+ *
+ * @param recurring true nếu là một lần lặp của task có repeat, false nếu là task một lần tại due_date
+ */
+public record TaskAgendaEntry(Long taskId, LocalDateTime occursAt, boolean recurring, String title,
+                              boolean completed, String type, Integer priority, String duration, String repeat) {
+}
@@ -0,0 +1,18 @@
+package com.example.todo.dto;
+
+import com.example.todo.model.Task;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class TaskBatchRequest {
+    private List<Operation> operations;
+
+    @Data
+    public static class Operation {
+        private String op;   // create | update | complete | uncomplete | delete
+        private Long id;     // bắt buộc với mọi op trừ create
+        private Task task;   // dữ liệu cho create / update
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.todo.dto;
+
+import com.example.todo.model.Task;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+// Kết quả của từng operation trong /api/tasks/batch, cùng thứ tự với request
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TaskBatchResult {
+    private int index;
+    private String op;
+    private Long id;
+    private int status;     // mã HTTP tương ứng nếu gọi lẻ (200, 201, 204, 400, 404)
+    private String error;
+    private Task task;
+
+    public TaskBatchResult(int index, String op, Long id, int status, String error, Task task) {
+        this.index = index;
+        this.op = op;
+        this.id = id;
+        this.status = status;
+        this.error = error;
+        this.task = task;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.todo.dto;
+
+import com.example.todo.model.Task;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class TaskChangesResponse {
+    private long version;        // gửi lại làm "since" ở lần sync sau
+    private List<Task> upserts;  // task tạo mới hoặc thay đổi
+    private List<Long> deletes;  // id các task đã bị xoá
+    // true: tombstone sau "since" đã bị dọn, upserts là toàn bộ task hiện có — client thay danh sách local thay vì merge
+    private boolean resyncRequired;
+
+    public TaskChangesResponse(long version, List<Task> upserts, List<Long> deletes) {
+        this(version, upserts, deletes, false);
+    }
+
+    public TaskChangesResponse(long version, List<Task> upserts, List<Long> deletes, boolean resyncRequired) {
+        this.version = version;
+        this.upserts = upserts;
+        this.deletes = deletes;
+        this.resyncRequired = resyncRequired;
+    }
+}
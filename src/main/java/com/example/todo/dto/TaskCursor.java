@@ -0,0 +1,76 @@
+package com.example.todo.dto;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Con trỏ keyset cho danh sách task phân trang.
+ * Client chỉ nhận chuỗi base64url "mờ" (opaque), không nên tự parse.
+ */
+@Getter
+public class TaskCursor {
+
+    public enum Sort {
+        ID("id"),                     // id tăng dần
+        DUE_DATE("dueDate"),          // due_date tăng dần, id tăng dần
+        COMPLETED_AT("completedAt");  // completed_at giảm dần, id giảm dần
+
+        private final String param;
+
+        Sort(String param) {
+            this.param = param;
+        }
+
+        public String getParam() {
+            return param;
+        }
+
+        public static Sort fromParam(String param) {
+            for (Sort sort : values()) {
+                if (sort.param.equalsIgnoreCase(param)) {
+                    return sort;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported sort: " + param);
+        }
+    }
+
+    private static final String VERSION = "v1";
+
+    private final Sort sort;
+    private final LocalDateTime key;   // null khi sort = ID
+    private final long id;
+
+    public TaskCursor(Sort sort, LocalDateTime key, long id) {
+        this.sort = sort;
+        this.key = key;
+        this.id = id;
+    }
+
+    public String encode() {
+        String raw = VERSION + "|" + sort.getParam() + "|" + (key != null ? key.toString() : "") + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TaskCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 4 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            Sort sort = Sort.fromParam(parts[1]);
+            LocalDateTime key = parts[2].isEmpty() ? null : LocalDateTime.parse(parts[2]);
+            if (sort != Sort.ID && key == null) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new TaskCursor(sort, key, Long.parseLong(parts[3]));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
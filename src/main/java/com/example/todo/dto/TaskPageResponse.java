@@ -0,0 +1,17 @@
+package com.example.todo.dto;
+
+import com.example.todo.model.Task;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class TaskPageResponse {
+    private List<Task> items;
+    private String nextCursor; // null nếu đã hết dữ liệu
+
+    public TaskPageResponse(List<Task> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+}
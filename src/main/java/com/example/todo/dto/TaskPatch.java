@@ -0,0 +1,108 @@
+package com.example.todo.dto;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Body của PATCH /api/tasks/{id}: chỉ field có mặt trong JSON mới được áp dụng.
+ * Jackson chỉ gọi setter cho field có trong body (kể cả khi giá trị là null), nên setter ghi lại tên field
+ * để phân biệt "không gửi" với "gửi null để xoá".
+ */
+@Getter
+public class TaskPatch {
+
+    @Getter(AccessLevel.NONE)
+    private final Set<String> fields = new HashSet<>();
+
+    private String title;
+    private String description;
+    private String type;
+    private Boolean completed;
+    private Detail taskDetail;
+
+    public void setTitle(String title) {
+        this.title = title;
+        fields.add("title");
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+        fields.add("description");
+    }
+
+    public void setType(String type) {
+        this.type = type;
+        fields.add("type");
+    }
+
+    public void setCompleted(Boolean completed) {
+        this.completed = completed;
+        fields.add("completed");
+    }
+
+    public void setTaskDetail(Detail taskDetail) {
+        this.taskDetail = taskDetail;
+        fields.add("taskDetail");
+    }
+
+    public boolean has(String field) {
+        return fields.contains(field);
+    }
+
+    // Chỉ đổi trạng thái hoàn thành: đi đường UPDATE đơn, không SELECT trước
+    public boolean isCompletionOnly() {
+        return fields.size() == 1 && completed != null;
+    }
+
+    @Getter
+    public static class Detail {
+
+        @Getter(AccessLevel.NONE)
+        private final Set<String> fields = new HashSet<>();
+
+        private LocalDateTime dueDate;
+        private LocalDateTime time;
+        private String duration;
+        private String repeat;
+        private Integer priority;
+        private Integer reminder;
+
+        public void setDueDate(LocalDateTime dueDate) {
+            this.dueDate = dueDate;
+            fields.add("dueDate");
+        }
+
+        public void setTime(LocalDateTime time) {
+            this.time = time;
+            fields.add("time");
+        }
+
+        public void setDuration(String duration) {
+            this.duration = duration;
+            fields.add("duration");
+        }
+
+        public void setRepeat(String repeat) {
+            this.repeat = repeat;
+            fields.add("repeat");
+        }
+
+        public void setPriority(Integer priority) {
+            this.priority = priority;
+            fields.add("priority");
+        }
+
+        public void setReminder(Integer reminder) {
+            this.reminder = reminder;
+            fields.add("reminder");
+        }
+
+        public boolean has(String field) {
+            return fields.contains(field);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.todo.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bản đọc của Task cho danh sách: lấy thẳng bằng constructor expression (TaskRepository.findViewsByUserId),
+ * không hydrate entity, không snapshot dirty checking. JSON giữ đúng thứ tự/tên field như entity Task.
+ */
+public record TaskView(Long id, String title, boolean completed, String description, String type,
+                       LocalDateTime completedAt, long changeVersion, LocalDateTime updatedAt, long version,
+                       Detail taskDetail) {
+
+    public record Detail(Long id, LocalDateTime dueDate, LocalDateTime time, String duration, String repeat,
+                         Integer priority, Integer reminder, LocalDateTime updatedAt) {
+    }
+
+    // Dùng trong JPQL "SELECT new ...": một dòng tasks LEFT JOIN task_details, detailId null = task không có detail
+    public TaskView(Long id, String title, boolean completed, String description, String type,
+                    LocalDateTime completedAt, long changeVersion, LocalDateTime updatedAt, long version,
+                    Long detailId, LocalDateTime dueDate, LocalDateTime time, String duration, String repeat,
+                    Integer priority, Integer reminder, LocalDateTime detailUpdatedAt) {
+        this(id, title, completed, description, type, completedAt, changeVersion, updatedAt, version,
+                detailId == null ? null
+                        : new Detail(detailId, dueDate, time, duration, repeat, priority, reminder, detailUpdatedAt));
+    }
+}
@@ -12,7 +12,8 @@ import java.time.LocalDateTime;
 @Table(name = "otps", schema = "todo_schema")
 public class Otp {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "otp_id_seq")
+    @SequenceGenerator(name = "otp_id_seq", sequenceName = "otps_id_seq", schema = "todo_schema", allocationSize = 50)
     private Long id;
 
     @Column(name = "email", nullable = false)
@@ -27,4 +28,8 @@ public class Otp {
     @Column(name = "expires_at", nullable = false)
     private LocalDateTime expiresAt;
 
+    // Số lần nhập sai; chỉ tăng bằng UPDATE trong OtpRepository.incrementAttempts
+    @Column(name = "attempts", nullable = false, insertable = false, updatable = false)
+    private int attempts;
+
 }
\ No newline at end of file
@@ -5,12 +5,15 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
 
+import java.time.Instant;
+
 @Entity
 @Data
 @Table(name = "users", schema = "todo_schema")
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_id_seq")
+    @SequenceGenerator(name = "user_id_seq", sequenceName = "users_id_seq", schema = "todo_schema", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Name cannot be empty")
@@ -29,4 +32,8 @@ public class User {
     // 👇 thêm cột avatar (có thể null)
     @Column(name = "avatar")
     private String avatar;
+
+    // JWT phát hành tới thời điểm này bị thu hồi (đổi mật khẩu), null = chưa thu hồi
+    @Column(name = "tokens_revoked_at")
+    private Instant tokensRevokedAt;
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.example.todo.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+// Broker trong bộ nhớ: chỉ phân phát tới các subscriber trên cùng node
+@Component
+public class LocalTaskEventBroker implements TaskEventBroker {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalTaskEventBroker.class);
+
+    private final ConcurrentHashMap<Long, Set<Consumer<TaskChangeEvent>>> listeners = new ConcurrentHashMap<>();
+    private final Set<Consumer<TaskChangeEvent>> globalListeners = new CopyOnWriteArraySet<>();
+
+    @Override
+    public void publish(TaskChangeEvent event) {
+        // Listener toàn cục (invalidate cache) chạy trước để SSE báo client thì client đọc được dữ liệu mới
+        deliver(globalListeners, event);
+        Set<Consumer<TaskChangeEvent>> userListeners = listeners.get(event.userId());
+        if (userListeners != null) {
+            deliver(userListeners, event);
+        }
+    }
+
+    private static void deliver(Set<Consumer<TaskChangeEvent>> targets, TaskChangeEvent event) {
+        for (Consumer<TaskChangeEvent> listener : targets) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                logger.warn("Task event listener failed for user {}: {}", event.userId(), e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public Subscription subscribe(Long userId, Consumer<TaskChangeEvent> listener) {
+        listeners.compute(userId, (id, set) -> {
+            Set<Consumer<TaskChangeEvent>> target = set != null ? set : new CopyOnWriteArraySet<>();
+            target.add(listener);
+            return target;
+        });
+        return () -> listeners.computeIfPresent(userId, (id, set) -> {
+            set.remove(listener);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    @Override
+    public Subscription subscribeAll(Consumer<TaskChangeEvent> listener) {
+        globalListeners.add(listener);
+        return () -> globalListeners.remove(listener);
+    }
+}
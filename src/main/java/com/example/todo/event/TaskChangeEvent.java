@@ -0,0 +1,23 @@
+package com.example.todo.event;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.List;
+
+/**
+ * Thay đổi task của một user trong một transaction (phát sau khi commit).
+ *
+ * @param userId  chủ sở hữu các task
+ * @param version change version của transaction, client gọi /api/tasks/changes?since=... để lấy chi tiết
+ * @param created id các task được tạo
+ * @param updated id các task được sửa
+ * @param deleted id các task bị xoá
+ */
+public record TaskChangeEvent(@JsonIgnore Long userId, long version,
+                              List<Long> created, List<Long> updated, List<Long> deleted) {
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return created.isEmpty() && updated.isEmpty() && deleted.isEmpty();
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.todo.event;
+
+import java.util.function.Consumer;
+
+/**
+ * Kênh pub/sub sự kiện thay đổi task theo user.
+ * Bản mặc định chạy trong process ({@link LocalTaskEventBroker}); khi chạy nhiều node có thể thay bằng
+ * một implementation dùng broker ngoài (Redis, Postgres LISTEN/NOTIFY...) mà không phải sửa phía SSE.
+ * Implementation nhiều node phải giao cả sự kiện phát từ node khác, vì cache danh sách task
+ * ({@code TaskListCache}) dựa vào đó để invalidate.
+ */
+public interface TaskEventBroker {
+
+    void publish(TaskChangeEvent event);
+
+    /**
+     * Đăng ký nhận sự kiện của một user. Listener phải không block (chỉ đẩy vào buffer của nó).
+     *
+     * @return handle để huỷ đăng ký
+     */
+    Subscription subscribe(Long userId, Consumer<TaskChangeEvent> listener);
+
+    // Nhận sự kiện của mọi user (dùng cho invalidate cache). Listener phải nhanh, không block.
+    Subscription subscribeAll(Consumer<TaskChangeEvent> listener);
+
+    interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.todo.event;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+// Chỉ đẩy sự kiện ra broker sau khi transaction ghi đã commit (rollback thì không phát)
+@Component
+public class TaskEventRelay {
+
+    private final TaskEventBroker broker;
+
+    public TaskEventRelay(TaskEventBroker broker) {
+        this.broker = broker;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onTaskChange(TaskChangeEvent event) {
+        if (!event.isEmpty()) {
+            broker.publish(event);
+        }
+    }
+}
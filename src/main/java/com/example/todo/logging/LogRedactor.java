@@ -0,0 +1,36 @@
+package com.example.todo.logging;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Che bí mật trong nội dung log: Bearer token, chuỗi có dạng JWT và các cặp key=value / "key":"value"
+ * với key nhạy cảm (password, secret, token, otp, code...).
+ * Chỉ chạy regex khi chuỗi có dấu hiệu nghi ngờ, log bình thường gần như không tốn thêm gì.
+ */
+public final class LogRedactor {
+
+    static final String MASK = "***";
+
+    private static final Pattern BEARER = Pattern.compile("(?i)(bearer\\s+)[A-Za-z0-9._~+/=-]+");
+    private static final Pattern JWT = Pattern.compile("eyJ[A-Za-z0-9_-]{5,}\\.[A-Za-z0-9_-]{5,}\\.[A-Za-z0-9_-]*");
+    private static final Pattern KEY_VALUE = Pattern.compile(
+            "(?i)((?<![A-Za-z0-9_])\"?(?:password|passwd|newpassword|secret|client_secret|access_token|refresh_token|id_token|token|otp|otpcode|code|authorization)\"?\\s*[:=]\\s*\"?)([^\"&,\\s}]+)");
+
+    private LogRedactor() {}
+
+    public static String redact(String text) {
+        if (text == null || text.isEmpty() || !mayContainSecret(text)) {
+            return text;
+        }
+        String result = BEARER.matcher(text).replaceAll("$1" + MASK);
+        result = JWT.matcher(result).replaceAll(MASK);
+        Matcher matcher = KEY_VALUE.matcher(result);
+        return matcher.find() ? matcher.replaceAll("$1" + MASK) : result;
+    }
+
+    // Lọc nhanh trước khi chạy regex: chỉ các chuỗi có '=' / ':' hoặc tiền tố JWT mới có thể chứa bí mật
+    private static boolean mayContainSecret(String text) {
+        return text.indexOf('=') >= 0 || text.indexOf(':') >= 0 || text.contains("eyJ");
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.todo.logging;
+
+import org.springframework.boot.json.JsonWriter;
+import org.springframework.boot.logging.structured.StructuredLoggingJsonMembersCustomizer;
+
+/**
+ * Che bí mật trong log JSON (profile prod): áp dụng cho mọi giá trị chuỗi — message, stack trace, MDC.
+ * Đăng ký qua logging.structured.json.customizer.
+ */
+public class RedactingJsonMembersCustomizer implements StructuredLoggingJsonMembersCustomizer<Object> {
+
+    @Override
+    public void customize(JsonWriter.Members<Object> members) {
+        members.applyingValueProcessor(JsonWriter.ValueProcessor.of(String.class, LogRedactor::redact));
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.todo.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lấy mẫu log DEBUG/TRACE của các logger rất ồn (SQL, bind parameter, security...): chỉ giữ 1 trên "rate" event.
+ * Lọc ngay ở turbo filter nên event bị bỏ không tạo LoggingEvent, không format message, không vào hàng đợi async.
+ * INFO trở lên luôn được giữ.
+ *
+ * Cấu hình trong logback-spring.xml:
+ * <pre>
+ * &lt;turboFilter class="com.example.todo.logging.SamplingTurboFilter"&gt;
+ *     &lt;loggers&gt;org.hibernate.SQL,org.springframework.security&lt;/loggers&gt;
+ *     &lt;rate&gt;100&lt;/rate&gt;
+ * &lt;/turboFilter&gt;
+ * </pre>
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    private String[] prefixes = new String[0];
+    private AtomicLong[] counters = new AtomicLong[0];
+    private int rate = 100;
+
+    public void setLoggers(String loggers) {
+        this.prefixes = Arrays.stream(loggers.split(","))
+                .map(String::trim)
+                .filter(prefix -> !prefix.isEmpty())
+                .toArray(String[]::new);
+        this.counters = new AtomicLong[prefixes.length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new AtomicLong();
+        }
+    }
+
+    public void setRate(int rate) {
+        this.rate = Math.max(1, rate);
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // format == null là lời gọi isDebugEnabled(): không đếm, để lần log thật mới bị lấy mẫu
+        if (!isStarted() || rate == 1 || format == null || level.isGreaterOrEqual(Level.INFO)) {
+            return FilterReply.NEUTRAL;
+        }
+        if (!level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL; // logger đã tắt level này, để logback tự bỏ
+        }
+        String name = logger.getName();
+        for (int i = 0; i < prefixes.length; i++) {
+            if (name.startsWith(prefixes[i])) {
+                return counters[i].getAndIncrement() % rate == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+            }
+        }
+        return FilterReply.NEUTRAL;
+    }
+}
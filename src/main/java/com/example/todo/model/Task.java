@@ -17,7 +17,9 @@ import java.time.LocalDateTime;
 public class Task {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Sequence + pooled optimizer (allocationSize = INCREMENT BY của sequence) để Hibernate batch được INSERT
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "task_id_seq")
+    @SequenceGenerator(name = "task_id_seq", sequenceName = "tasks_id_seq", schema = "todo_schema", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Task title is required")
@@ -34,6 +36,18 @@ public class Task {
     @Column(name = "completed_at")
     private LocalDateTime completedAt;
 
+    // 🔹 Phiên bản thay đổi theo user (tăng dần), client dùng để delta sync
+    @Column(name = "change_version", nullable = false)
+    private long changeVersion;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // 🔹 Optimistic locking: tăng mỗi lần task được ghi, trả về làm ETag cho If-Match
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
     // 🔹 Mỗi Task thuộc về một User
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false) // cột user_id trong bảng tasks
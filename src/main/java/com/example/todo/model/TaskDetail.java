@@ -14,7 +14,8 @@ import java.time.LocalDateTime;
 public class TaskDetail {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "task_detail_id_seq")
+    @SequenceGenerator(name = "task_detail_id_seq", sequenceName = "task_details_id_seq", schema = "todo_schema", allocationSize = 50)
     private Long id;
 
     // Khóa ngoại trỏ về bảng tasks
@@ -41,6 +42,9 @@ public class TaskDetail {
     @Column(name = "reminder")
     private Integer reminder;        // số phút trước sự kiện
 
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt; // lần cuối detail thay đổi
+
     // Constructor mặc định cho JPA
     public TaskDetail() {}
 
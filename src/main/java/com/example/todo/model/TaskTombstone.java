@@ -0,0 +1,41 @@
+package com.example.todo.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Dấu vết task đã xoá, để client delta sync biết cần xoá task nào
+@Setter
+@Getter
+@Entity
+@Table(name = "task_tombstones", schema = "todo_schema")
+public class TaskTombstone {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "task_tombstone_id_seq")
+    @SequenceGenerator(name = "task_tombstone_id_seq", sequenceName = "task_tombstones_id_seq", schema = "todo_schema", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "task_id", nullable = false)
+    private Long taskId;
+
+    @Column(name = "change_version", nullable = false)
+    private long changeVersion;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+
+    public TaskTombstone() {}
+
+    public TaskTombstone(Long userId, Long taskId, long changeVersion, LocalDateTime deletedAt) {
+        this.userId = userId;
+        this.taskId = taskId;
+        this.changeVersion = changeVersion;
+        this.deletedAt = deletedAt;
+    }
+}
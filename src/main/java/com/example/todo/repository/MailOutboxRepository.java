@@ -0,0 +1,38 @@
+package com.example.todo.repository;
+
+import com.example.todo.entity.MailOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface MailOutboxRepository extends JpaRepository<MailOutbox, Long> {
+
+    /**
+     * Nhận (claim) tối đa "limit" mail đến hạn: đẩy next_attempt_at tới "leaseUntil" và tăng attempts.
+     * SKIP LOCKED để nhiều instance cùng chạy không lấy trùng dòng; nếu instance chết giữa chừng,
+     * mail sẽ được lấy lại khi hết lease.
+     */
+    @Query(value = """
+            UPDATE todo_schema.mail_outbox o
+               SET next_attempt_at = :leaseUntil, attempts = o.attempts + 1
+             WHERE o.id IN (SELECT id FROM todo_schema.mail_outbox
+                             WHERE status = 'PENDING' AND next_attempt_at <= :now
+                             ORDER BY next_attempt_at
+                             LIMIT :limit
+                             FOR UPDATE SKIP LOCKED)
+            RETURNING o.*
+            """, nativeQuery = true)
+    List<MailOutbox> claimDue(@Param("now") LocalDateTime now,
+                              @Param("leaseUntil") LocalDateTime leaseUntil,
+                              @Param("limit") int limit);
+
+    long countByStatus(String status);
+
+    @Modifying
+    @Query("DELETE FROM MailOutbox m WHERE m.id IN :ids")
+    int deleteAllByIdIn(@Param("ids") List<Long> ids);
+}
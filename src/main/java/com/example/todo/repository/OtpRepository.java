@@ -10,11 +10,20 @@ import java.time.LocalDateTime;
 import java.util.Optional;
 
 public interface OtpRepository extends JpaRepository<Otp, Long> {
-    Optional<Otp> findByEmailAndOtpCode(String email, String otpCode);
+    Optional<Otp> findFirstByEmailOrderByIdDesc(String email);
     void deleteByEmail(String email);
 
+    @Modifying
+    @Query("DELETE FROM Otp o WHERE o.id = :id")
+    int deleteByIdReturningCount(@Param("id") Long id);
+
+    // Tăng số lần nhập sai ngay trong DB (không đọc-sửa-ghi) và trả về giá trị mới
+    @Query(value = "UPDATE todo_schema.otps SET attempts = attempts + 1 WHERE id = :id RETURNING attempts",
+            nativeQuery = true)
+    int incrementAttempts(@Param("id") Long id);
+
     // Thêm method để xoá tất cả OTP đã hết hạn với @Modifying và @Query
     @Modifying
     @Query("DELETE FROM Otp o WHERE o.expiresAt < :dateTime")
     int deleteAllByExpiresAtBefore(@Param("dateTime") LocalDateTime dateTime);
-}
\ No newline at end of file
+}
@@ -1,13 +1,90 @@
 package com.example.todo.repository;
 
+import com.example.todo.dto.TaskView;
 import com.example.todo.model.Task;
 import com.example.todo.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface TaskRepository extends JpaRepository<Task, Long> {
+public interface TaskRepository extends JpaRepository<Task, Long>, JpaSpecificationExecutor<Task> {
+
+    int EXPORT_FETCH_SIZE = 500;
+
+    // taskDetail là phía mappedBy của @OneToOne nên Hibernate không proxy được: query danh sách nào không
+    // JOIN FETCH t.taskDetail sẽ tốn thêm một SELECT task_details cho mỗi task (N+1)
 
     // Lấy tất cả task của một user
-    List<Task> findByUser(User user);
-}
\ No newline at end of file
+    @Query("SELECT t FROM Task t LEFT JOIN FETCH t.taskDetail WHERE t.user = :user ORDER BY t.id")
+    List<Task> findByUser(@Param("user") User user);
+
+    // Lấy task theo user id (không cần load entity User, không join bảng users)
+    @Query("SELECT t FROM Task t LEFT JOIN FETCH t.taskDetail WHERE t.user.id = :userId ORDER BY t.id")
+    List<Task> findByUserId(@Param("userId") Long userId);
+
+    // Danh sách chỉ để đọc: select thẳng vào record, không tạo entity/snapshot trong persistence context
+    @Query("SELECT new com.example.todo.dto.TaskView(t.id, t.title, t.completed, t.description, t.type,"
+            + " t.completedAt, t.changeVersion, t.updatedAt, t.version,"
+            + " d.id, d.dueDate, d.time, d.duration, d.repeat, d.priority, d.reminder, d.updatedAt)"
+            + " FROM Task t LEFT JOIN t.taskDetail d WHERE t.user.id = :userId ORDER BY t.id")
+    List<TaskView> findViewsByUserId(@Param("userId") Long userId);
+
+    // Lấy các task trong danh sách id thuộc user (một query IN, kiểm tra quyền sở hữu luôn)
+    @Query("SELECT t FROM Task t LEFT JOIN FETCH t.taskDetail WHERE t.user.id = :userId AND t.id IN :ids")
+    List<Task> findAllByUserIdAndIdIn(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    // Các task thay đổi trong khoảng (since, upTo] — dùng cho delta sync
+    @Query("SELECT t FROM Task t LEFT JOIN FETCH t.taskDetail WHERE t.user.id = :userId"
+            + " AND t.changeVersion > :since AND t.changeVersion <= :upTo ORDER BY t.changeVersion, t.id")
+    List<Task> findChanged(@Param("userId") Long userId, @Param("since") long since, @Param("upTo") long upTo);
+
+    /**
+     * Đổi trạng thái hoàn thành bằng một câu lệnh, không SELECT trước: CTE lấy change version mới của user
+     * (giữ row lock như nextChangeVersion), UPDATE chỉ các cột liên quan và tăng version.
+     * checkVersion = false là không kiểm tra version (không có If-Match); cờ riêng để If-Match âm không thành "bỏ qua".
+     * Không khớp dòng nào (không tồn tại / user khác / sai version) thì trả về rỗng; change version của user
+     * vẫn bị tăng trong CTE nên caller phải rollback.
+     */
+    @Query(value = """
+            WITH v AS (
+                UPDATE todo_schema.users SET change_version = change_version + 1 WHERE id = :userId RETURNING change_version
+            )
+            UPDATE todo_schema.tasks t
+            SET completed = :completed,
+                completed_at = CASE WHEN t.completed = :completed THEN t.completed_at WHEN :completed THEN :now END,
+                change_version = v.change_version,
+                updated_at = :now,
+                version = t.version + 1
+            FROM v
+            WHERE t.id = :id AND t.user_id = :userId AND (NOT :checkVersion OR t.version = :expectedVersion)
+            RETURNING t.version AS version, t.change_version AS changeVersion""", nativeQuery = true)
+    Optional<VersionStamp> updateCompleted(@Param("userId") Long userId, @Param("id") Long id,
+                                           @Param("completed") boolean completed, @Param("now") LocalDateTime now,
+                                           @Param("checkVersion") boolean checkVersion,
+                                           @Param("expectedVersion") long expectedVersion);
+
+    interface VersionStamp {
+        long getVersion();
+
+        long getChangeVersion();
+    }
+
+    // Đọc tuần tự (forward-only cursor) toàn bộ task của user để export; phải gọi trong transaction
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT t FROM Task t LEFT JOIN FETCH t.taskDetail WHERE t.user.id = :userId ORDER BY t.id")
+    Stream<Task> streamAllByUserId(@Param("userId") Long userId);
+}
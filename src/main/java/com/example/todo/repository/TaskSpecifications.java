@@ -0,0 +1,106 @@
+package com.example.todo.repository;
+
+import com.example.todo.dto.TaskCursor;
+import com.example.todo.model.Task;
+import com.example.todo.model.TaskDetail;
+import jakarta.persistence.criteria.Fetch;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+
+// Các điều kiện lọc cho danh sách task (dùng với JpaSpecificationExecutor)
+public final class TaskSpecifications {
+
+    private TaskSpecifications() {}
+
+    // Fetch join task_details ngay trong câu query danh sách (tránh N+1 do taskDetail là @OneToOne phía mappedBy).
+    // Phải đứng đầu allOf để các điều kiện/sort trên detail dùng lại join này; bỏ qua với câu count
+    public static Specification<Task> fetchDetail() {
+        return (root, query, cb) -> {
+            if (query != null && query.getResultType() == Task.class) {
+                root.fetch("taskDetail", JoinType.LEFT);
+            }
+            return null;
+        };
+    }
+
+    public static Specification<Task> ownedBy(Long userId) {
+        return (root, query, cb) -> cb.equal(root.get("user").get("id"), userId);
+    }
+
+    public static Specification<Task> completed(Boolean completed) {
+        return (root, query, cb) -> completed == null ? null : cb.equal(root.get("completed"), completed);
+    }
+
+    public static Specification<Task> type(String type) {
+        return (root, query, cb) -> type == null || type.isBlank() ? null : cb.equal(root.get("type"), type);
+    }
+
+    public static Specification<Task> priority(Integer priority) {
+        return (root, query, cb) -> priority == null ? null : cb.equal(detail(root).get("priority"), priority);
+    }
+
+    public static Specification<Task> dueBetween(LocalDateTime from, LocalDateTime to) {
+        return (root, query, cb) -> {
+            if (from == null && to == null) {
+                return null;
+            }
+            if (from == null) {
+                return cb.lessThan(detail(root).get("dueDate"), to);
+            }
+            if (to == null) {
+                return cb.greaterThanOrEqualTo(detail(root).get("dueDate"), from);
+            }
+            return cb.and(
+                    cb.greaterThanOrEqualTo(detail(root).get("dueDate"), from),
+                    cb.lessThan(detail(root).get("dueDate"), to));
+        };
+    }
+
+    // Sắp xếp theo dueDate / completedAt thì bỏ qua các task không có giá trị đó
+    public static Specification<Task> hasSortKey(TaskCursor.Sort sort) {
+        return (root, query, cb) -> switch (sort) {
+            case ID -> null;
+            case DUE_DATE -> cb.isNotNull(detail(root).get("dueDate"));
+            case COMPLETED_AT -> cb.isNotNull(root.get("completedAt"));
+        };
+    }
+
+    // Điều kiện keyset: chỉ lấy các dòng đứng sau cursor theo đúng thứ tự sắp xếp
+    public static Specification<Task> after(TaskCursor cursor) {
+        return (root, query, cb) -> {
+            if (cursor == null) {
+                return null;
+            }
+            return switch (cursor.getSort()) {
+                case ID -> cb.greaterThan(root.get("id"), cursor.getId());
+                case DUE_DATE -> cb.or(
+                        cb.greaterThan(detail(root).<LocalDateTime>get("dueDate"), cursor.getKey()),
+                        cb.and(cb.equal(detail(root).get("dueDate"), cursor.getKey()),
+                                cb.greaterThan(root.get("id"), cursor.getId())));
+                case COMPLETED_AT -> cb.or(
+                        cb.lessThan(root.<LocalDateTime>get("completedAt"), cursor.getKey()),
+                        cb.and(cb.equal(root.get("completedAt"), cursor.getKey()),
+                                cb.lessThan(root.get("id"), cursor.getId())));
+            };
+        };
+    }
+
+    // Dùng lại join tới task_details nếu đã có (kể cả fetch join của fetchDetail), tránh join trùng khi ghép nhiều điều kiện
+    @SuppressWarnings("unchecked")
+    private static Join<Task, TaskDetail> detail(Root<Task> root) {
+        for (Fetch<Task, ?> fetch : root.getFetches()) {
+            // Với Hibernate, fetch join cũng là một Join
+            if (fetch.getAttribute().getName().equals("taskDetail") && fetch instanceof Join<?, ?> join) {
+                return (Join<Task, TaskDetail>) join;
+            }
+        }
+        return (Join<Task, TaskDetail>) root.getJoins().stream()
+                .filter(join -> join.getAttribute().getName().equals("taskDetail"))
+                .findFirst()
+                .orElseGet(() -> root.join("taskDetail", JoinType.LEFT));
+    }
+}
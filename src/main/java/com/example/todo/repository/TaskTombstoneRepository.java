@@ -0,0 +1,13 @@
+package com.example.todo.repository;
+
+import com.example.todo.model.TaskTombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface TaskTombstoneRepository extends JpaRepository<TaskTombstone, Long> {
+
+    // Các task bị xoá trong khoảng (since, upTo]
+    List<TaskTombstone> findByUserIdAndChangeVersionGreaterThanAndChangeVersionLessThanEqualOrderByChangeVersion(
+            Long userId, long since, long upTo);
+}
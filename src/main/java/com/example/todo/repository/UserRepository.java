@@ -2,10 +2,38 @@ package com.example.todo.repository;
 
 import com.example.todo.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
+
+    // Tăng phiên bản thay đổi của user và trả về giá trị mới.
+    // UPDATE giữ row lock tới khi commit nên các lần ghi của cùng một user commit theo đúng thứ tự version.
+    @Query(value = "UPDATE todo_schema.users SET change_version = change_version + 1 WHERE id = :userId RETURNING change_version",
+            nativeQuery = true)
+    long nextChangeVersion(@Param("userId") Long userId);
+
+    // Chỉ ghi hash mới nếu hash cũ chưa bị đổi (vd. user vừa đổi mật khẩu trong lúc băm lại)
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.password = :newHash WHERE u.id = :userId AND u.password = :oldHash")
+    int updatePasswordIfUnchanged(@Param("userId") Long userId,
+                                  @Param("oldHash") String oldHash,
+                                  @Param("newHash") String newHash);
+
+    // Version hiện tại và mốc tombstone đã dọn, đọc cùng một câu cho delta sync
+    interface SyncState {
+        long getChangeVersion();
+        long getTombstonesPurgedThrough();
+    }
+
+    @Query(value = "SELECT change_version AS changeVersion, tombstones_purged_through AS tombstonesPurgedThrough"
+            + " FROM todo_schema.users WHERE id = :userId", nativeQuery = true)
+    Optional<SyncState> findSyncState(@Param("userId") Long userId);
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package com.example.todo.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache giới hạn kích thước các tài khoản đã bị thu hồi token (đổi mật khẩu, bị khoá hoặc bị xoá).
+ * Token phát hành trước hoặc cùng lúc thu hồi sẽ bị từ chối. Một entry chỉ cần giữ tối đa bằng
+ * thời gian sống của JWT, sau đó mọi token cũ đều đã hết hạn nên entry được bỏ đi.
+ *
+ * Đọc không khoá (chạy trên mọi request); dọn và loại entry chỉ làm lúc ghi. Khi phải loại entry còn hiệu lực
+ * vì đầy, mốc evictedThrough được nâng lên: token phát hành trước mốc này không còn kết luận được từ cache
+ * ({@link Status#UNKNOWN}) và phải kiểm tra lại bằng DB.
+ */
+@Component
+public class AccountRevocationCache {
+
+    public enum Status {
+        ACTIVE,
+        REVOKED,
+        // Có thể thuộc tài khoản đã bị loại khỏi cache: kiểm tra bằng DB
+        UNKNOWN
+    }
+
+    private final int maxSize;
+    private final long retentionMillis;
+    private final Map<String, Instant> revokedAt = new ConcurrentHashMap<>();
+    private volatile Instant evictedThrough;
+
+    public AccountRevocationCache(@Value("${app.security.revocation-cache.max-size:10000}") int maxSize,
+                                  @Value("${app.jwt.expiration}") long jwtExpiration) {
+        this.maxSize = maxSize;
+        this.retentionMillis = jwtExpiration;
+    }
+
+    // Thu hồi mọi token của email này được phát hành tới thời điểm at
+    public void revoke(String email, Instant at) {
+        revokedAt.merge(email, at, (old, now) -> now.isAfter(old) ? now : old);
+        if (revokedAt.size() > maxSize) {
+            evict(Instant.now());
+        }
+    }
+
+    public Status check(String email, Instant tokenIssuedAt) {
+        Instant at = revokedAt.get(email);
+        if (at != null) {
+            return revokes(at, tokenIssuedAt) ? Status.REVOKED : Status.ACTIVE;
+        }
+        Instant mark = evictedThrough;
+        return mark != null && revokes(mark, tokenIssuedAt) ? Status.UNKNOWN : Status.ACTIVE;
+    }
+
+    /**
+     * Token phát hành tại issuedAt có bị thu hồi tại at không. iat chuẩn của JWT chỉ tới giây nên token cũ
+     * (không có claim iat_ms) phát hành trong cùng giây với lần thu hồi cũng bị coi là đã thu hồi.
+     */
+    public static boolean revokes(Instant at, Instant issuedAt) {
+        return issuedAt == null || !issuedAt.isAfter(at);
+    }
+
+    // Bỏ entry đã quá thời gian sống của JWT, còn đầy thì loại các lần thu hồi cũ nhất xuống 3/4 maxSize
+    private synchronized void evict(Instant now) {
+        revokedAt.values().removeIf(at -> at.plusMillis(retentionMillis).isBefore(now));
+        if (revokedAt.size() <= maxSize) {
+            return;
+        }
+        // Nâng mốc trước khi xoá để request đọc giữa chừng không thấy entry đã mất mà mốc chưa đổi
+        evictedThrough = now;
+        revokedAt.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue())
+                .limit(revokedAt.size() - maxSize * 3L / 4)
+                .toList()
+                .forEach(entry -> revokedAt.remove(entry.getKey(), entry.getValue()));
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.todo.security;
+
+import com.example.todo.entity.User;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Principal gắn vào SecurityContext sau khi xác thực JWT.
+ * Mang sẵn id + email lấy từ token nên controller không cần query lại bảng users.
+ */
+@Getter
+public class AuthenticatedUser implements UserDetails {
+
+    private static final List<GrantedAuthority> AUTHORITIES = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+
+    private final Long id;
+    private final String email;
+    private final String password; // chỉ có khi load từ DB (DaoAuthenticationProvider), null khi lấy từ JWT
+    private final Instant tokensRevokedAt; // chỉ có khi load từ DB
+
+    public AuthenticatedUser(Long id, String email) {
+        this(id, email, null, null);
+    }
+
+    public AuthenticatedUser(Long id, String email, String password, Instant tokensRevokedAt) {
+        this.id = id;
+        this.email = email;
+        this.password = password;
+        this.tokensRevokedAt = tokensRevokedAt;
+    }
+
+    public static AuthenticatedUser from(User user) {
+        // Google login có thể null password → fallback ""
+        return new AuthenticatedUser(user.getId(), user.getEmail(), user.getPassword() == null ? "" : user.getPassword(),
+                user.getTokensRevokedAt());
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return AUTHORITIES;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+}
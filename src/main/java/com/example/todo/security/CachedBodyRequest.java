@@ -0,0 +1,96 @@
+package com.example.todo.security;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+// Đọc trước tối đa maxBytes đầu của body, phần đã đọc được "trả lại" cho controller phía sau
+class CachedBodyRequest extends HttpServletRequestWrapper {
+
+    private final byte[] prefix;
+    private final boolean complete;
+    private final InputStream body;
+
+    CachedBodyRequest(HttpServletRequest request, int maxBytes) throws IOException {
+        super(request);
+        InputStream original = request.getInputStream();
+        this.prefix = original.readNBytes(maxBytes + 1);
+        this.complete = prefix.length <= maxBytes;
+        this.body = complete
+                ? new ByteArrayInputStream(prefix)
+                : new SequenceInputStream(new ByteArrayInputStream(prefix), original);
+    }
+
+    // Toàn bộ body nếu nó không vượt quá maxBytes, ngược lại null
+    byte[] getCompleteBody() {
+        return complete ? prefix : null;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        return new ServletInputStream() {
+            private boolean eof;
+
+            @Override
+            public int read() throws IOException {
+                int b = body.read();
+                eof = b == -1;
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = body.read(b, off, len);
+                eof = n == -1;
+                return n;
+            }
+
+            @Override
+            public boolean isFinished() {
+                try {
+                    return eof || complete && body.available() == 0;
+                } catch (IOException e) {
+                    return true;
+                }
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            // Dữ liệu đã nằm sẵn trong bộ nhớ (phần còn lại nếu có thì đọc blocking), nên báo có dữ liệu ngay
+            // và báo đọc xong khi listener đã đọc hết
+            @Override
+            public void setReadListener(ReadListener readListener) {
+                try {
+                    if (!isFinished()) {
+                        readListener.onDataAvailable();
+                    }
+                    if (isFinished()) {
+                        readListener.onAllDataRead();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    readListener.onError(e);
+                }
+            }
+        };
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        String encoding = getCharacterEncoding();
+        Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+        return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+    }
+}
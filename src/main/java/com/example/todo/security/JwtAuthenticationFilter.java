@@ -1,31 +1,56 @@
 package com.example.todo.security;
 
+import com.example.todo.logging.RequestCorrelationFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final AccountRevocationCache accountRevocationCache;
+    private final PrincipalRevalidation revalidation;
+
+    // Meter dựng sẵn một lần, không tra registry trên mỗi request
+    private final Timer validTokens;
+    private final Timer invalidTokens;
+    private final Counter rejectedPrincipals;
 
     // ✅ Dùng @Lazy để tránh circular dependency với SecurityConfig
-    public JwtAuthenticationFilter(JwtService jwtService, @Lazy UserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtService jwtService,
+                                   @Lazy UserDetailsService userDetailsService,
+                                   AccountRevocationCache accountRevocationCache,
+                                   @Value("${app.security.principal-revalidation:revocation-cache}") PrincipalRevalidation revalidation,
+                                   MeterRegistry meterRegistry) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.accountRevocationCache = accountRevocationCache;
+        this.revalidation = revalidation;
+        this.validTokens = jwtTimer(meterRegistry, "valid");
+        this.invalidTokens = jwtTimer(meterRegistry, "invalid");
+        this.rejectedPrincipals = Counter.builder("jwt.principal.rejected")
+                .description("Valid tokens whose account was revoked or no longer exists")
+                .register(meterRegistry);
     }
 
     @Override
@@ -36,8 +61,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     ) throws ServletException, IOException {
 
         final String authHeader = request.getHeader("Authorization");
-        final String jwt;
-        final String username;
 
         // ❌ Không có Bearer Token thì cho qua luôn
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
@@ -45,28 +68,75 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
 
-        // ✅ Lấy JWT từ header
-        jwt = authHeader.substring(7);
-        username = jwtService.extractUsername(jwt);
+        // ✅ Verify JWT đúng một lần (chữ ký + hạn dùng), token lỗi → claims = null
+        long start = System.nanoTime();
+        final JwtClaims claims = jwtService.verify(authHeader.substring(7));
+        (claims != null ? validTokens : invalidTokens).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
 
-        // ✅ Nếu có username và chưa có Authentication trong context thì set
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+        // ✅ Nếu token hợp lệ và chưa có Authentication trong context thì set
+        if (claims != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            AuthenticatedUser principal = resolvePrincipal(claims);
 
-            if (jwtService.isTokenValid(jwt, userDetails.getUsername())) {
+            if (principal != null) {
                 UsernamePasswordAuthenticationToken authToken =
                         new UsernamePasswordAuthenticationToken(
-                                userDetails,
+                                principal,
                                 null,
-                                userDetails.getAuthorities()
+                                principal.getAuthorities()
                         );
 
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
                 SecurityContextHolder.getContext().setAuthentication(authToken);
+                MDC.put(RequestCorrelationFilter.USER_ID, String.valueOf(principal.getId()));
+            } else {
+                rejectedPrincipals.increment();
             }
         }
 
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private static Timer jwtTimer(MeterRegistry registry, String result) {
+        return Timer.builder("jwt.verification")
+                .description("JWT signature/expiry verification, including the verified-token cache")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    // ✅ Dựng principal từ claim của token, chỉ xuống DB khi cấu hình DATABASE, token cũ chưa có uid
+    // hoặc cache thu hồi không kết luận được (tài khoản có thể đã bị loại khỏi cache)
+    private AuthenticatedUser resolvePrincipal(JwtClaims claims) {
+        Long userId = revalidation == PrincipalRevalidation.DATABASE ? null : claims.userId();
+        if (userId == null) {
+            return loadPrincipal(claims);
+        }
+
+        if (revalidation == PrincipalRevalidation.REVOCATION_CACHE) {
+            switch (accountRevocationCache.check(claims.subject(), claims.issuedAt())) {
+                case REVOKED -> {
+                    return null;
+                }
+                case UNKNOWN -> {
+                    return loadPrincipal(claims);
+                }
+                case ACTIVE -> {
+                }
+            }
+        }
+        return new AuthenticatedUser(userId, claims.subject());
+    }
+
+    private AuthenticatedUser loadPrincipal(JwtClaims claims) {
+        AuthenticatedUser user;
+        try {
+            user = (AuthenticatedUser) userDetailsService.loadUserByUsername(claims.subject());
+        } catch (UsernameNotFoundException e) {
+            return null;
+        }
+        if (user.getTokensRevokedAt() != null && AccountRevocationCache.revokes(user.getTokensRevokedAt(), claims.issuedAt())) {
+            return null;
+        }
+        return user;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.todo.security;
+
+import java.time.Instant;
+
+/**
+ * Các claim cần dùng của một JWT đã verify chữ ký.
+ *
+ * @param subject   email của user
+ * @param userId    claim "uid", null với token cũ
+ * @param issuedAt  thời điểm phát hành (mili giây nếu token có claim "iat_ms", không thì tới giây)
+ * @param expiresAt thời điểm hết hạn
+ */
+public record JwtClaims(String subject, Long userId, Instant issuedAt, Instant expiresAt) {
+
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && !now.isBefore(expiresAt);
+    }
+}
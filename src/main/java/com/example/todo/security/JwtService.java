@@ -1,20 +1,30 @@
 package com.example.todo.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.util.Date;
-import java.util.function.Function;
+import java.util.HexFormat;
 
 @Service
 public class JwtService {
 
+    private static final String USER_ID_CLAIM = "uid";
+    // iat chuẩn chỉ tới giây; bản mili giây để so với thời điểm thu hồi (AccountRevocationCache)
+    private static final String ISSUED_AT_MILLIS_CLAIM = "iat_ms";
+
     // 🔑 Lấy secret từ application.properties
     @Value("${app.jwt.secret}")
     private String secretKey;
@@ -23,50 +33,89 @@ public class JwtService {
     @Value("${app.jwt.expiration}")
     private long jwtExpiration;
 
-    private SecretKey getSigningKey() {
+    // 🗃️ Số token đã verify được giữ lại trong cache (0 = tắt cache)
+    @Value("${app.jwt.verified-cache.max-size:0}")
+    private int verifiedCacheMaxSize;
+
+    // ✅ Key và parser chỉ dựng một lần lúc khởi động (JwtParser là immutable, thread-safe)
+    private SecretKey signingKey;
+    private JwtParser parser;
+    private VerifiedTokenCache verifiedCache;
+
+    @PostConstruct
+    void init() {
         byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+        this.signingKey = Keys.hmacShaKeyFor(keyBytes);
+        this.parser = Jwts.parser()   // jjwt 0.12.x
+                .verifyWith(signingKey)
+                .build();
+        this.verifiedCache = verifiedCacheMaxSize > 0 ? new VerifiedTokenCache(verifiedCacheMaxSize) : null;
     }
 
-    // ✅ Lấy username (subject) từ token
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
-    }
+    /**
+     * Verify chữ ký + hạn dùng của token đúng một lần và trả về các claim.
+     * Trả về null nếu token sai chữ ký, sai định dạng hoặc đã hết hạn.
+     */
+    public JwtClaims verify(String token) {
+        Instant now = Instant.now();
+        String tokenHash = verifiedCache != null ? sha256(token) : null;
+        if (tokenHash != null) {
+            JwtClaims cached = verifiedCache.get(tokenHash, now);
+            if (cached != null) {
+                return cached;
+            }
+        }
 
-    // ✅ Lấy ngày hết hạn từ token
-    public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
+        JwtClaims claims;
+        try {
+            Claims payload = parser.parseSignedClaims(token).getPayload();
+            claims = new JwtClaims(
+                    payload.getSubject(),
+                    payload.get(USER_ID_CLAIM, Long.class),
+                    issuedAt(payload),
+                    toInstant(payload.getExpiration()));
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
 
-    // ✅ Lấy claim bất kỳ
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = Jwts
-                .parser()   // jjwt 0.12.x
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        if (claims.subject() == null || claims.isExpired(now)) {
+            return null;
+        }
+        if (tokenHash != null) {
+            verifiedCache.put(tokenHash, claims);
+        }
+        return claims;
+    }
 
-        return claimsResolver.apply(claims);
+    // ✅ Tạo token mới (kèm user id để filter không phải query lại DB)
+    public String generateToken(Long userId, String username) {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .subject(username)  // API mới jjwt 0.12.x
+                .claim(USER_ID_CLAIM, userId)
+                .claim(ISSUED_AT_MILLIS_CLAIM, now)
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + jwtExpiration))
+                .signWith(signingKey, Jwts.SIG.HS256)
+                .compact();
     }
 
-    // ✅ Kiểm tra token hợp lệ
-    public boolean isTokenValid(String token, String username) {
-        final String extractedUsername = extractUsername(token);
-        return (extractedUsername.equals(username) && !isTokenExpired(token));
+    // Token cũ không có iat_ms: dùng iat (cận dưới, làm tròn xuống giây)
+    private static Instant issuedAt(Claims payload) {
+        Long millis = payload.get(ISSUED_AT_MILLIS_CLAIM, Long.class);
+        return millis != null ? Instant.ofEpochMilli(millis) : toInstant(payload.getIssuedAt());
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private static Instant toInstant(Date date) {
+        return date != null ? date.toInstant() : null;
     }
 
-    // ✅ Tạo token mới
-    public String generateToken(String username) {
-        return Jwts.builder()
-                .subject(username)  // API mới jjwt 0.12.x
-                .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + jwtExpiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
-                .compact();
+    private static String sha256(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
-}
\ No newline at end of file
+}
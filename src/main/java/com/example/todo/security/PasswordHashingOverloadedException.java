@@ -0,0 +1,20 @@
+package com.example.todo.security;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+// Pool băm mật khẩu đã đầy: trả 503 ngay thay vì giữ thread request chờ BCrypt
+public class PasswordHashingOverloadedException extends ResponseStatusException {
+
+    public PasswordHashingOverloadedException() {
+        super(HttpStatus.SERVICE_UNAVAILABLE, "Server is busy, please try again later");
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        return headers;
+    }
+}
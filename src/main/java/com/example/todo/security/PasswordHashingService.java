@@ -0,0 +1,162 @@
+package com.example.todo.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chạy BCrypt (băm + so khớp) trên một pool riêng có hàng đợi giới hạn.
+ * Số phép BCrypt chạy đồng thời không vượt quá số thread của pool, và số thread request phải chờ
+ * không vượt quá độ dài hàng đợi; quá tải thì ném {@link PasswordHashingOverloadedException} (503) ngay.
+ */
+@Service
+public class PasswordHashingService {
+
+    private final BCryptPasswordEncoder encoder;
+    private final ThreadPoolExecutor executor;
+    private final long maxWaitNanos;
+
+    // Timer (histogram + max theo cửa sổ), chỉ ghi phép băm thật sự chạy: việc bị huỷ vì hết max-wait không tính
+    private final Timer hashTimer;
+    private final Timer queueWait;
+    private final Counter rejected;
+
+    public PasswordHashingService(BCryptPasswordEncoder passwordEncoder,
+                                  @Value("${app.security.password-hashing.threads:0}") int threads,
+                                  @Value("${app.security.password-hashing.queue-capacity:32}") int queueCapacity,
+                                  @Value("${app.security.password-hashing.max-wait:2s}") Duration maxWait,
+                                  MeterRegistry meterRegistry) {
+        this.encoder = passwordEncoder;
+        this.hashTimer = Timer.builder("password.hashing")
+                .description("BCrypt work on the hashing pool")
+                .register(meterRegistry);
+        this.queueWait = Timer.builder("password.hashing.queue.wait")
+                .description("Time a BCrypt task waited for a hashing thread")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("password.hashing.rejected")
+                .description("BCrypt requests rejected because the pool was full or max-wait elapsed")
+                .register(meterRegistry);
+        this.maxWaitNanos = maxWait.toNanos();
+        // 0 = theo số CPU, BCrypt thuần CPU nên nhiều thread hơn cũng không nhanh hơn
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+        AtomicInteger threadIds = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadIds.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public String hash(String rawPassword) {
+        return await(submit(() -> encoder.encode(rawPassword)));
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null) {
+            return false;
+        }
+        return await(submit(() -> encoder.matches(rawPassword, encodedPassword)));
+    }
+
+    // Hash cũ có cost thấp hơn strength đang cấu hình thì nên băm lại
+    public boolean needsRehash(String encodedPassword) {
+        return encodedPassword != null && encoder.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Băm lại ở nền, không chặn request; pool đầy thì bỏ qua (lần login sau sẽ thử lại).
+     */
+    public CompletableFuture<String> hashInBackground(String rawPassword) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        try {
+            executor.execute(timed(System.nanoTime(), result, () -> encoder.encode(rawPassword)));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            result.completeExceptionally(new PasswordHashingOverloadedException());
+        }
+        return result;
+    }
+
+    private <T> Future<T> submit(Callable<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(timed(System.nanoTime(), result, work));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingOverloadedException();
+        }
+        return result;
+    }
+
+    private <T> Runnable timed(long submittedAt, CompletableFuture<T> result, Callable<T> work) {
+        return () -> {
+            long startedAt = System.nanoTime();
+            queueWait.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+            if (result.isCancelled()) {
+                return; // caller đã bỏ cuộc (hết max-wait), không tốn CPU nữa và không ghi vào password.hashing
+            }
+            try {
+                result.complete(work.call());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            } finally {
+                hashTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            }
+        };
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            rejected.increment();
+            throw new PasswordHashingOverloadedException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingOverloadedException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getPoolSize() {
+        return executor.getMaximumPoolSize();
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.todo.security;
+
+/**
+ * Cách JwtAuthenticationFilter kiểm tra lại tài khoản sau khi token đã verify chữ ký.
+ * Cấu hình qua app.security.principal-revalidation.
+ */
+public enum PrincipalRevalidation {
+    // Tin hoàn toàn vào token, không kiểm tra gì thêm
+    NONE,
+    // Đối chiếu với cache trong bộ nhớ các tài khoản bị thu hồi (đổi mật khẩu, khoá, xoá) — không query DB
+    REVOCATION_CACHE,
+    // Load lại user từ DB mỗi request (hành vi cũ)
+    DATABASE
+}
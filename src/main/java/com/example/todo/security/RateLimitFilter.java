@@ -0,0 +1,144 @@
+package com.example.todo.security;
+
+import com.example.todo.dto.ErrorResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Giới hạn tần suất cho các endpoint auth (login, signup, reset-password, verify-otp, google-login)
+ * theo IP và theo email trong body, chạy trước JwtAuthenticationFilter. Vượt giới hạn → 429 + Retry-After.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private final RateLimitProperties properties;
+    private final ObjectMapper objectMapper;
+    private final TokenBucketRateLimiter limiter;
+    private final Map<String, List<RateLimitProperties.Rule>> rulesByPath = new HashMap<>();
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder limited = new LongAdder();
+
+    public RateLimitFilter(RateLimitProperties properties, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.limiter = new TokenBucketRateLimiter(properties.getMaxKeys());
+        for (RateLimitProperties.Rule rule : properties.getRules()) {
+            if (rule.getCapacity() <= 0 || rule.getPeriod() == null || rule.getPeriod().isNegative() || rule.getPeriod().isZero()) {
+                throw new IllegalStateException("Invalid rate limit rule: " + rule.getName());
+            }
+            rulesByPath.computeIfAbsent(rule.getPath(), path -> new ArrayList<>()).add(rule);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !properties.isEnabled()
+                || HttpMethod.OPTIONS.matches(request.getMethod())
+                || !rulesByPath.containsKey(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        List<RateLimitProperties.Rule> rules = rulesByPath.get(request.getServletPath());
+        HttpServletRequest forwarded = request;
+        String email = null;
+        if (rules.stream().anyMatch(rule -> rule.getKey() == RateLimitProperties.KeyType.EMAIL)) {
+            CachedBodyRequest cached = new CachedBodyRequest(request, properties.getMaxBodyBytes());
+            email = extractEmail(cached.getCompleteBody());
+            forwarded = cached;
+        }
+
+        long retryAfterNanos = 0;
+        for (RateLimitProperties.Rule rule : rules) {
+            String id = rule.getKey() == RateLimitProperties.KeyType.IP ? request.getRemoteAddr() : email;
+            if (id == null) {
+                continue;
+            }
+            TokenBucketRateLimiter.Decision decision =
+                    limiter.tryAcquire(rule.getName() + '|' + id, rule.getCapacity(), rule.getPeriod().toNanos());
+            if (!decision.allowed()) {
+                retryAfterNanos = Math.max(retryAfterNanos, decision.retryAfterNanos());
+            }
+        }
+
+        if (retryAfterNanos > 0) {
+            limited.increment();
+            logger.debug("Rate limited {} {} from {}", request.getMethod(), request.getServletPath(), request.getRemoteAddr());
+            long retryAfterSeconds = Math.max(1, (retryAfterNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader("Retry-After", Long.toString(retryAfterSeconds));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), new ErrorResponse("Too many requests, please try again later"));
+            return;
+        }
+
+        allowed.increment();
+        filterChain.doFilter(forwarded, response);
+    }
+
+    private String extractEmail(byte[] body) {
+        if (body == null || body.length == 0) {
+            return null;
+        }
+        try {
+            JsonNode email = objectMapper.readTree(body).get("email");
+            return email != null && email.isTextual() ? email.asText().trim().toLowerCase(Locale.ROOT) : null;
+        } catch (IOException e) {
+            return null; // body không phải JSON thì controller sẽ tự trả lỗi
+        }
+    }
+
+    // Dọn bucket đã nạp đầy để bộ nhớ chỉ tỷ lệ với số key đang bị hạn chế
+    @Scheduled(fixedDelayString = "${app.rate-limit.eviction-interval:60000}")
+    public void evictIdleBuckets() {
+        int evicted = limiter.evictIdle();
+        if (evicted > 0) {
+            logger.debug("Evicted {} idle rate limit buckets, {} remaining", evicted, limiter.size());
+        }
+    }
+
+    public long getAllowed() {
+        return allowed.sum();
+    }
+
+    public long getLimited() {
+        return limited.sum();
+    }
+
+    public int getTrackedKeys() {
+        return limiter.size();
+    }
+
+    public long getOverflow() {
+        return limiter.getOverflow();
+    }
+}
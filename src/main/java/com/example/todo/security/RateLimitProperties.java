@@ -0,0 +1,36 @@
+package com.example.todo.security;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Cấu hình rate limit: mỗi rule là một bucket riêng theo (endpoint, IP hoặc email)
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    public enum KeyType { IP, EMAIL }
+
+    private boolean enabled = true;
+    private int maxKeys = 100_000;
+    // Body lớn hơn thì không đọc email (rule theo email bị bỏ qua)
+    private int maxBodyBytes = 16 * 1024;
+    private List<Rule> rules = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Rule {
+        private String name;
+        private String path;
+        private KeyType key = KeyType.IP;
+        private int capacity;
+        private Duration period;
+    }
+}
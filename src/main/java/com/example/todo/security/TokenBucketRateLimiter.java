@@ -0,0 +1,81 @@
+package com.example.todo.security;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket không khoá, cài đặt theo GCRA: mỗi key chỉ giữ một AtomicLong là "thời điểm đến lý thuyết" (TAT).
+ * Một request hợp lệ đẩy TAT thêm một khoảng phát (period / capacity) bằng CAS; request bị từ chối nếu
+ * TAT mới vượt quá now + capacity khoảng phát. Bucket có TAT &lt;= now đã đầy lại nên có thể xoá mà không mất thông tin.
+ */
+public class TokenBucketRateLimiter {
+
+    public record Decision(boolean allowed, long retryAfterNanos) {
+        static final Decision ALLOWED = new Decision(true, 0L);
+    }
+
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final int maxKeys;
+    private final LongSupplier nanoClock;
+    private final LongAdder overflow = new LongAdder();
+
+    public TokenBucketRateLimiter(int maxKeys) {
+        this(maxKeys, System::nanoTime);
+    }
+
+    TokenBucketRateLimiter(int maxKeys, LongSupplier nanoClock) {
+        this.maxKeys = maxKeys;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Lấy một token của bucket "key" (capacity token, nạp đầy lại sau mỗi periodNanos).
+     */
+    public Decision tryAcquire(String key, int capacity, long periodNanos) {
+        long now = nanoClock.getAsLong();
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys && evictIdle() == 0 && buckets.size() >= maxKeys) {
+                // Hết chỗ mà không có bucket rảnh: cho qua thay vì chặn nhầm người dùng thật
+                overflow.increment();
+                return Decision.ALLOWED;
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(Long.MIN_VALUE));
+        }
+
+        long interval = periodNanos / capacity;
+        long burst = interval * capacity;
+        while (true) {
+            long tat = bucket.get();
+            long next = Math.max(tat, now) + interval;
+            long wait = next - now - burst;
+            if (wait > 0) {
+                return new Decision(false, wait);
+            }
+            if (bucket.compareAndSet(tat, next)) {
+                return Decision.ALLOWED;
+            }
+        }
+    }
+
+    /**
+     * Xoá các bucket đã đầy lại (không còn hạn chế gì). Một request đang CAS trên bucket vừa bị xoá
+     * có thể được thêm tối đa một token, chấp nhận được để không phải khoá.
+     */
+    public int evictIdle() {
+        long now = nanoClock.getAsLong();
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+        return Math.max(0, before - buckets.size());
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    public long getOverflow() {
+        return overflow.sum();
+    }
+}
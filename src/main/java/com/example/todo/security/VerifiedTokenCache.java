@@ -0,0 +1,40 @@
+package com.example.todo.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Cache giới hạn số phần tử các token đã verify, key là SHA-256 của token.
+ * Caffeine (đọc không khoá, loại theo W-TinyLFU); mỗi entry hết hạn đúng lúc token hết hạn.
+ */
+class VerifiedTokenCache {
+
+    private final Cache<String, JwtClaims> entries;
+
+    VerifiedTokenCache(int maxSize) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(Expiry.creating((String tokenHash, JwtClaims claims) -> claims.expiresAt() != null
+                        ? Duration.between(Instant.now(), claims.expiresAt())
+                        : Duration.ofNanos(Long.MAX_VALUE)))
+                .build();
+    }
+
+    JwtClaims get(String tokenHash, Instant now) {
+        JwtClaims claims = entries.getIfPresent(tokenHash);
+        // Caffeine dọn entry hết hạn theo đợt; vẫn kiểm tra theo đồng hồ của request
+        return claims != null && !claims.isExpired(now) ? claims : null;
+    }
+
+    void put(String tokenHash, JwtClaims claims) {
+        entries.put(tokenHash, claims);
+    }
+
+    long size() {
+        return entries.estimatedSize();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.todo.service;
+
+import com.example.todo.entity.User;
+import com.example.todo.repository.UserRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+/**
+ * Các thao tác ghi ngắn trên tài khoản. Phần tốn CPU (BCrypt) làm ở caller trước khi gọi vào đây,
+ * để transaction không giữ connection JDBC trong lúc băm.
+ */
+@Service
+public class AccountService {
+
+    private final UserRepository userRepository;
+    private final OtpStore otpStore;
+
+    public AccountService(UserRepository userRepository, OtpStore otpStore) {
+        this.userRepository = userRepository;
+        this.otpStore = otpStore;
+    }
+
+    // Lưu hash mới + mốc thu hồi token và huỷ OTP đặt lại mật khẩu; false nếu email không tồn tại
+    @Transactional
+    public boolean changePassword(String email, String passwordHash, Instant tokensRevokedAt) {
+        User user = userRepository.findByEmail(email).orElse(null);
+        if (user == null) {
+            return false;
+        }
+        user.setPassword(passwordHash);
+        user.setTokensRevokedAt(tokensRevokedAt);
+        userRepository.save(user);
+        otpStore.invalidate(email);
+        return true;
+    }
+}
@@ -0,0 +1,423 @@
+package com.example.todo.service;
+
+import com.example.todo.config.OutboundHttpMetrics;
+import com.example.todo.entity.User;
+import com.example.todo.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
+
+/**
+ * Proxy avatar có cache: tầng bộ nhớ (LRU, giới hạn theo tổng số byte) + tầng đĩa tuỳ chọn, cả hai có TTL.
+ * Entry hết hạn được revalidate với upstream bằng If-None-Match / If-Modified-Since (304 thì chỉ gia hạn),
+ * nhiều request miss cùng lúc cho cùng một URL chỉ tạo ra một lần fetch.
+ */
+@Service
+public class AvatarService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvatarService.class);
+    private static final String DEFAULT_CONTENT_TYPE = "image/jpeg";
+    private static final String TEMP_SUFFIX = ".tmp";
+    // File tạm cũ hơn mức này là sót lại sau crash, không còn ai đang ghi
+    private static final long STALE_TEMP_MILLIS = 10 * 60 * 1000;
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36";
+
+    /**
+     * Ảnh avatar đã cache.
+     *
+     * @param etag         ETag trả cho browser (của upstream nếu có, nếu không thì hash nội dung)
+     * @param upstreamEtag ETag upstream trả về, dùng để revalidate
+     */
+    public record Avatar(String url, byte[] bytes, String contentType, String etag,
+                         String upstreamEtag, String lastModified, Instant fetchedAt) {
+
+        Avatar refreshed(Instant now) {
+            return new Avatar(url, bytes, contentType, etag, upstreamEtag, lastModified, now);
+        }
+    }
+
+    private final UserRepository userRepository;
+    private final HttpClient httpClient;
+    private final OutboundHttpMetrics httpMetrics;
+    private final Duration ttl;
+    private final Duration fetchTimeout;
+    private final long maxImageBytes;
+    private final MemoryTier memory;
+    private final Path diskDir;
+    private final long diskMaxBytes;
+    private final ConcurrentHashMap<String, CompletableFuture<Optional<Avatar>>> inFlight = new ConcurrentHashMap<>();
+
+    public AvatarService(UserRepository userRepository,
+                         HttpClient outboundHttpClient,
+                         OutboundHttpMetrics outboundHttpMetrics,
+                         @Value("${app.avatar.cache.ttl:1h}") Duration ttl,
+                         @Value("${app.avatar.cache.max-memory:32MB}") DataSize maxMemory,
+                         @Value("${app.avatar.cache.disk-dir:}") String diskDir,
+                         @Value("${app.avatar.cache.max-disk:256MB}") DataSize maxDisk,
+                         @Value("${app.avatar.fetch-timeout:5s}") Duration fetchTimeout,
+                         @Value("${app.avatar.max-image-size:2MB}") DataSize maxImageSize) throws IOException {
+        this.userRepository = userRepository;
+        this.httpClient = outboundHttpClient;
+        this.httpMetrics = outboundHttpMetrics;
+        this.ttl = ttl;
+        this.fetchTimeout = fetchTimeout;
+        this.maxImageBytes = maxImageSize.toBytes();
+        this.memory = new MemoryTier(maxMemory.toBytes());
+        this.diskMaxBytes = maxDisk.toBytes();
+        this.diskDir = diskDir == null || diskDir.isBlank() ? null : Files.createDirectories(Path.of(diskDir));
+    }
+
+    // Lấy avatar của user; Optional.empty() nếu user không có avatar hoặc upstream không trả được ảnh
+    public Optional<Avatar> getAvatar(Long userId) {
+        Optional<String> url = userRepository.findById(userId)
+                .map(User::getAvatar)
+                .filter(avatar -> !avatar.isBlank());
+        return url.flatMap(this::getByUrl);
+    }
+
+    Optional<Avatar> getByUrl(String url) {
+        Instant now = Instant.now();
+        Avatar cached = memory.get(url);
+        if (cached == null && diskDir != null) {
+            cached = readDisk(url);
+            if (cached != null) {
+                memory.put(cached);
+            }
+        }
+        if (cached != null && cached.fetchedAt().plus(ttl).isAfter(now)) {
+            return Optional.of(cached);
+        }
+
+        // Miss hoặc hết hạn: chỉ một request fetch, các request khác chờ chung kết quả
+        Avatar stale = cached;
+        CompletableFuture<Optional<Avatar>> mine = new CompletableFuture<>();
+        CompletableFuture<Optional<Avatar>> existing = inFlight.putIfAbsent(url, mine);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                return Optional.ofNullable(stale);
+            }
+        }
+
+        try {
+            Optional<Avatar> result = fetch(url, stale);
+            result.ifPresent(avatar -> {
+                memory.put(avatar);
+                writeDisk(avatar);
+            });
+            mine.complete(result);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Error fetching avatar {}: {}", url, e.getMessage());
+            // Upstream lỗi thì vẫn trả bản cũ nếu có
+            Optional<Avatar> fallback = Optional.ofNullable(stale);
+            mine.complete(fallback);
+            return fallback;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            mine.complete(Optional.ofNullable(stale));
+            return Optional.ofNullable(stale);
+        } finally {
+            inFlight.remove(url, mine);
+        }
+    }
+
+    private Optional<Avatar> fetch(String url, Avatar stale) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(fetchTimeout)
+                .header("User-Agent", USER_AGENT);
+        if (stale != null && stale.upstreamEtag() != null) {
+            request.header("If-None-Match", stale.upstreamEtag());
+        }
+        if (stale != null && stale.lastModified() != null) {
+            request.header("If-Modified-Since", stale.lastModified());
+        }
+
+        HttpResponse<Optional<byte[]>> response = httpMetrics.send(httpClient, "avatar", request.build(),
+                this::limitedBody);
+        Instant now = Instant.now();
+        if (response.statusCode() == 304 && stale != null) {
+            return Optional.of(stale.refreshed(now));
+        }
+        if (response.statusCode() != 200 || response.body().isEmpty()) {
+            logger.debug("Avatar upstream {} returned status {} (or body over {} bytes)", url, response.statusCode(), maxImageBytes);
+            return Optional.empty();
+        }
+
+        byte[] bytes = response.body().get();
+        String contentType = response.headers().firstValue("Content-Type").orElse(DEFAULT_CONTENT_TYPE);
+        String upstreamEtag = response.headers().firstValue("ETag").orElse(null);
+        String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+        String etag = upstreamEtag != null ? upstreamEtag : "\"" + sha256(bytes).substring(0, 32) + "\"";
+        return Optional.of(new Avatar(url, bytes, contentType, etag, upstreamEtag, lastModified, now));
+    }
+
+    // Chỉ đọc body của 200 và không quá maxImageBytes: Content-Length lớn thì huỷ ngay, không có thì đếm dần
+    private HttpResponse.BodySubscriber<Optional<byte[]>> limitedBody(HttpResponse.ResponseInfo info) {
+        long contentLength = info.headers().firstValueAsLong("Content-Length").orElse(-1);
+        if (info.statusCode() != 200 || contentLength > maxImageBytes) {
+            return new LimitedBodySubscriber(-1);
+        }
+        return new LimitedBodySubscriber(maxImageBytes);
+    }
+
+    /* ==================== DISK TIER ==================== */
+
+    private Avatar readDisk(String url) {
+        String key = sha256(url.getBytes(StandardCharsets.UTF_8));
+        Path data = diskDir.resolve(key + ".bin");
+        Path meta = diskDir.resolve(key + ".properties");
+        if (!Files.exists(data) || !Files.exists(meta)) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(meta)) {
+            Properties props = new Properties();
+            props.load(in);
+            if (!url.equals(props.getProperty("url"))) {
+                return null;
+            }
+            // .bin và .properties được thay riêng từng file: lệch cặp (đang ghi đè) thì coi như miss
+            byte[] bytes = Files.readAllBytes(data);
+            if (!sha256(bytes).equals(props.getProperty("sha256"))) {
+                return null;
+            }
+            return new Avatar(url, bytes,
+                    props.getProperty("contentType", DEFAULT_CONTENT_TYPE),
+                    props.getProperty("etag"),
+                    props.getProperty("upstreamEtag"),
+                    props.getProperty("lastModified"),
+                    Instant.ofEpochMilli(Long.parseLong(props.getProperty("fetchedAt", "0"))));
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Ignoring unreadable avatar cache file {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeDisk(Avatar avatar) {
+        if (diskDir == null) {
+            return;
+        }
+        String key = sha256(avatar.url().getBytes(StandardCharsets.UTF_8));
+        Properties props = new Properties();
+        props.setProperty("url", avatar.url());
+        props.setProperty("contentType", avatar.contentType());
+        props.setProperty("etag", avatar.etag());
+        props.setProperty("fetchedAt", Long.toString(avatar.fetchedAt().toEpochMilli()));
+        props.setProperty("sha256", sha256(avatar.bytes()));
+        if (avatar.upstreamEtag() != null) {
+            props.setProperty("upstreamEtag", avatar.upstreamEtag());
+        }
+        if (avatar.lastModified() != null) {
+            props.setProperty("lastModified", avatar.lastModified());
+        }
+        try {
+            ByteArrayOutputStream meta = new ByteArrayOutputStream();
+            props.store(meta, null);
+            writeAtomically(diskDir.resolve(key + ".bin"), avatar.bytes());
+            writeAtomically(diskDir.resolve(key + ".properties"), meta.toByteArray());
+            trimDisk();
+        } catch (IOException e) {
+            logger.warn("Failed to write avatar cache file {}: {}", key, e.getMessage());
+        }
+    }
+
+    // Ghi ra file tạm cùng thư mục rồi rename: reader (hoặc crash giữa chừng) không bao giờ thấy file ghi dở
+    private void writeAtomically(Path target, byte[] bytes) throws IOException {
+        Path temp = Files.createTempFile(diskDir, target.getFileName().toString(), TEMP_SUFFIX);
+        try {
+            Files.write(temp, bytes);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Xoá file cũ nhất khi tổng dung lượng vượt giới hạn (chỉ chạy khi ghi, tức là khi có miss);
+    // file tạm sót lại sau crash cũng được dọn ở đây
+    private void trimDisk() throws IOException {
+        List<Path> files;
+        long staleTempBefore = System.currentTimeMillis() - STALE_TEMP_MILLIS;
+        try (Stream<Path> list = Files.list(diskDir)) {
+            List<Path> all = list.toList();
+            for (Path path : all) {
+                if (path.toString().endsWith(TEMP_SUFFIX) && lastModifiedMillis(path) < staleTempBefore) {
+                    Files.deleteIfExists(path);
+                }
+            }
+            files = all.stream()
+                    .filter(path -> path.toString().endsWith(".bin"))
+                    .sorted(Comparator.comparingLong(AvatarService::lastModifiedMillis))
+                    .toList();
+        }
+        long total = 0;
+        for (Path file : files) {
+            total += Files.size(file);
+        }
+        for (Path file : files) {
+            if (total <= diskMaxBytes) {
+                break;
+            }
+            total -= Files.size(file);
+            String name = file.getFileName().toString();
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(diskDir.resolve(name.substring(0, name.length() - 4) + ".properties"));
+        }
+    }
+
+    private static long lastModifiedMillis(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /* ==================== UPSTREAM BODY ==================== */
+
+    // Gom body vào bộ nhớ tới maxBytes; vượt quá (hoặc maxBytes < 0) thì cancel subscription để
+    // HttpClient đóng kết nối, kết quả là Optional.empty() thay vì tiếp tục tải
+    private static final class LimitedBodySubscriber implements HttpResponse.BodySubscriber<Optional<byte[]>> {
+        private final long maxBytes;
+        private final CompletableFuture<Optional<byte[]>> result = new CompletableFuture<>();
+        private final List<ByteBuffer> buffers = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private long received;
+
+        LimitedBodySubscriber(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public CompletionStage<Optional<byte[]>> getBody() {
+            return result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (maxBytes < 0) {
+                abort();
+            } else {
+                subscription.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            if (result.isDone()) {
+                return;
+            }
+            for (ByteBuffer item : items) {
+                received += item.remaining();
+                buffers.add(item);
+            }
+            if (received > maxBytes) {
+                abort();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            if (result.isDone()) {
+                return;
+            }
+            byte[] bytes = new byte[(int) received];
+            int offset = 0;
+            for (ByteBuffer buffer : buffers) {
+                int length = buffer.remaining();
+                buffer.get(bytes, offset, length);
+                offset += length;
+            }
+            buffers.clear();
+            result.complete(Optional.of(bytes));
+        }
+
+        private void abort() {
+            buffers.clear();
+            result.complete(Optional.empty());
+            subscription.cancel();
+        }
+    }
+
+    /* ==================== MEMORY TIER ==================== */
+
+    // LRU theo thứ tự truy cập, giới hạn bởi tổng số byte ảnh
+    private static final class MemoryTier {
+        private final long maxBytes;
+        private final LinkedHashMap<String, Avatar> entries = new LinkedHashMap<>(64, 0.75f, true);
+        private long totalBytes;
+
+        MemoryTier(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized Avatar get(String url) {
+            return entries.get(url);
+        }
+
+        synchronized void put(Avatar avatar) {
+            if (avatar.bytes().length > maxBytes) {
+                return;
+            }
+            Avatar previous = entries.put(avatar.url(), avatar);
+            if (previous != null) {
+                totalBytes -= previous.bytes().length;
+            }
+            totalBytes += avatar.bytes().length;
+            var it = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && it.hasNext()) {
+                Map.Entry<String, Avatar> eldest = it.next();
+                totalBytes -= eldest.getValue().bytes().length;
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.todo.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Đổi LocalDateTime <-> cột TIMESTAMP cho code JDBC thuần, theo đúng cách Hibernate ghi
+ * (spring.jpa.properties.hibernate.jdbc.time_zone): giá trị trong app là giờ theo múi của JVM,
+ * giá trị trong DB là cùng thời điểm đó theo múi đã cấu hình. Không cấu hình thì hai bên trùng nhau.
+ */
+final class DbTimestamps {
+
+    private final ZoneId appZone = ZoneId.systemDefault();
+    private final ZoneId dbZone;
+
+    DbTimestamps(String hibernateJdbcTimeZone) {
+        this.dbZone = hibernateJdbcTimeZone == null || hibernateJdbcTimeZone.isBlank()
+                ? appZone
+                : ZoneId.of(hibernateJdbcTimeZone);
+    }
+
+    Timestamp toDb(LocalDateTime value) {
+        return Timestamp.valueOf(value.atZone(appZone).withZoneSameInstant(dbZone).toLocalDateTime());
+    }
+
+    LocalDateTime fromDb(Timestamp value) {
+        return value.toLocalDateTime().atZone(dbZone).withZoneSameInstant(appZone).toLocalDateTime();
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.todo.service;
+
+import com.example.todo.config.OutboundHttpMetrics;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
+import com.google.api.client.googleapis.auth.oauth2.GoogleIdTokenVerifier;
+import com.google.api.client.googleapis.auth.oauth2.GooglePublicKeysManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+
+/**
+ * Đổi authorization code lấy ID token và verify nó với Google.
+ * Chứng chỉ ký được tải sẵn khi khởi động (lần chạy đầu của job refresh) và làm mới ở nền trước khi hết hạn,
+ * nên request login không phải chờ tải chứng chỉ.
+ */
+@Service
+public class GoogleOAuthClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(GoogleOAuthClient.class);
+
+    private final HttpClient httpClient;
+    private final OutboundHttpMetrics httpMetrics;
+    private final ObjectMapper objectMapper;
+    private final GoogleIdTokenVerifier verifier;
+    private final GooglePublicKeysManager publicKeysManager;
+    private final String tokenEndpoint;
+    private final String clientId;
+    private final String clientSecret;
+    private final Duration requestTimeout;
+    private final Duration refreshMargin;
+    private final MeterRegistry meterRegistry;
+
+    public GoogleOAuthClient(HttpClient outboundHttpClient,
+                             OutboundHttpMetrics outboundHttpMetrics,
+                             MeterRegistry meterRegistry,
+                             ObjectMapper objectMapper,
+                             GoogleIdTokenVerifier googleIdTokenVerifier,
+                             GooglePublicKeysManager googlePublicKeysManager,
+                             @Value("${google.token-endpoint:https://oauth2.googleapis.com/token}") String tokenEndpoint,
+                             @Value("${google.client-id}") String clientId,
+                             @Value("${google.client-secret}") String clientSecret,
+                             @Value("${google.request-timeout:10s}") Duration requestTimeout,
+                             @Value("${google.certs-refresh-margin:5m}") Duration refreshMargin) {
+        this.httpClient = outboundHttpClient;
+        this.httpMetrics = outboundHttpMetrics;
+        this.meterRegistry = meterRegistry;
+        this.objectMapper = objectMapper;
+        this.verifier = googleIdTokenVerifier;
+        this.publicKeysManager = googlePublicKeysManager;
+        this.tokenEndpoint = tokenEndpoint;
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+        this.requestTimeout = requestTimeout;
+        this.refreshMargin = refreshMargin;
+    }
+
+    // Đổi code -> id_token; trả về null nếu Google từ chối
+    public String exchangeCode(String code, String redirectUri) throws IOException, InterruptedException {
+        String body = "code=" + URLEncoder.encode(code, StandardCharsets.UTF_8)
+                + "&client_id=" + URLEncoder.encode(clientId, StandardCharsets.UTF_8)
+                + "&client_secret=" + URLEncoder.encode(clientSecret, StandardCharsets.UTF_8)
+                + "&redirect_uri=" + URLEncoder.encode(redirectUri, StandardCharsets.UTF_8)
+                + "&grant_type=authorization_code";
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(tokenEndpoint))
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .header("Accept", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+
+        HttpResponse<String> response = httpMetrics.send(httpClient, "google-token", request,
+                HttpResponse.BodyHandlers.ofString());
+        logger.debug("Google token endpoint status: {}", response.statusCode());
+
+        JsonNode json = objectMapper.readTree(response.body());
+        if (response.statusCode() != 200 || !json.hasNonNull("id_token")) {
+            // Không log body: có thể chứa access/refresh token
+            logger.warn("Failed to retrieve Google ID token. Status: {}, error: {}",
+                    response.statusCode(), json.path("error").asText("unknown"));
+            return null;
+        }
+        return json.get("id_token").asText();
+    }
+
+    public GoogleIdToken verify(String idToken) throws GeneralSecurityException, IOException {
+        return verifier.verify(idToken);
+    }
+
+    // Làm mới chứng chỉ khi sắp hết hạn (theo max-age Google trả về); lần chạy đầu ngay khi khởi động
+    @Scheduled(fixedDelayString = "${google.certs-refresh-check:60000}")
+    public void refreshKeysIfNeeded() {
+        try {
+            long expiresAt = publicKeysManager.getExpirationTimeMilliseconds();
+            if (expiresAt - refreshMargin.toMillis() <= System.currentTimeMillis()) {
+                // Chứng chỉ tải qua transport của google-api-client nên đo riêng ở đây
+                Timer.Sample sample = Timer.start(meterRegistry);
+                String outcome = "error";
+                try {
+                    publicKeysManager.refresh();
+                    outcome = "success";
+                } finally {
+                    sample.stop(meterRegistry.timer("google.certs.refresh", "outcome", outcome));
+                }
+                logger.debug("Refreshed Google signing certificates, {} keys", publicKeysManager.getPublicKeys().size());
+            }
+        } catch (GeneralSecurityException | IOException | RuntimeException e) {
+            // Lần verify kế tiếp sẽ tự tải lại nếu cần
+            logger.warn("Failed to refresh Google signing certificates: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.todo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * OTP giữ trong bộ nhớ: tra cứu/đếm lần thử O(1) trên ConcurrentHashMap theo email,
+ * hết hạn qua DelayQueue — một thread nền ngủ tới đúng deadline gần nhất rồi gỡ entry,
+ * thay cho câu DELETE quét cả bảng mỗi phút. Đọc cũng tự kiểm tra deadline nên không phụ thuộc thread dọn.
+ * Entry bị thay/huỷ không bị gỡ khỏi DelayQueue (remove trên queue là O(n)); tới hạn thì remove(email, entry)
+ * thấy entry đã khác và bỏ qua, nên queue chỉ giữ tối đa số OTP phát ra trong một TTL.
+ */
+@Service
+@ConditionalOnProperty(name = "app.otp.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryOtpStore implements OtpStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryOtpStore.class);
+
+    private final Duration ttl;
+    private final int maxAttempts;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final DelayQueue<Entry> expiries = new DelayQueue<>();
+    private final LongAdder expired = new LongAdder();
+    private final Thread reaper;
+
+    public InMemoryOtpStore(@Value("${app.otp.ttl:5m}") Duration ttl,
+                            @Value("${app.otp.max-attempts:5}") int maxAttempts) {
+        this.ttl = ttl;
+        this.maxAttempts = maxAttempts;
+        this.reaper = new Thread(this::reap, "otp-expiry");
+        this.reaper.setDaemon(true);
+        this.reaper.start();
+    }
+
+    @Override
+    public String issue(String email) {
+        String code = OtpCodes.generate();
+        Entry entry = new Entry(email, code, System.nanoTime() + ttl.toNanos());
+        entries.put(email, entry);
+        expiries.add(entry);
+        return code;
+    }
+
+    @Override
+    public VerifyResult verify(String email, String code) {
+        Entry entry = entries.get(email);
+        if (entry == null) {
+            return VerifyResult.INVALID;
+        }
+        if (entry.isExpired(System.nanoTime())) {
+            remove(entry);
+            return VerifyResult.EXPIRED;
+        }
+        if (OtpCodes.matches(entry.code, code)) {
+            // Chỉ request gỡ được entry mới tính là verify thành công (hai request cùng mã không cùng qua)
+            return remove(entry) ? VerifyResult.VERIFIED : VerifyResult.INVALID;
+        }
+        if (entry.attempts.incrementAndGet() >= maxAttempts) {
+            remove(entry);
+            return VerifyResult.TOO_MANY_ATTEMPTS;
+        }
+        return VerifyResult.INVALID;
+    }
+
+    @Override
+    public void invalidate(String email) {
+        entries.remove(email);
+    }
+
+    @Override
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public int getSize() {
+        return entries.size();
+    }
+
+    public long getExpired() {
+        return expired.sum();
+    }
+
+    private boolean remove(Entry entry) {
+        return entries.remove(entry.email, entry);
+    }
+
+    private void reap() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Entry entry = expiries.take();
+                if (entries.remove(entry.email, entry)) {
+                    expired.increment();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                logger.warn("OTP expiry failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        reaper.interrupt();
+    }
+
+    private static final class Entry implements Delayed {
+        private final String email;
+        private final String code;
+        private final long deadlineNanos;
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        private Entry(String email, String code, long deadlineNanos) {
+            this.email = email;
+            this.code = code;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        boolean isExpired(long now) {
+            return now - deadlineNanos >= 0;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(deadlineNanos, ((Entry) other).deadlineNanos);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.todo.service;
+
+import com.example.todo.entity.Otp;
+import com.example.todo.repository.OtpRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * OTP lưu ở bảng otps, dùng khi chạy nhiều instance (reset-password và verify-otp có thể rơi vào hai node khác nhau).
+ * OTP hết hạn được OtpCleanupService dọn định kỳ.
+ */
+@Service
+@ConditionalOnProperty(name = "app.otp.store", havingValue = "jpa")
+public class JpaOtpStore implements OtpStore {
+
+    private final OtpRepository otpRepository;
+    private final Duration ttl;
+    private final int maxAttempts;
+
+    public JpaOtpStore(OtpRepository otpRepository,
+                       @Value("${app.otp.ttl:5m}") Duration ttl,
+                       @Value("${app.otp.max-attempts:5}") int maxAttempts) {
+        this.otpRepository = otpRepository;
+        this.ttl = ttl;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @Override
+    @Transactional
+    public String issue(String email) {
+        String code = OtpCodes.generate();
+        LocalDateTime now = LocalDateTime.now();
+
+        otpRepository.deleteByEmail(email);
+        Otp otp = new Otp();
+        otp.setEmail(email);
+        otp.setOtpCode(code);
+        otp.setCreatedAt(now);
+        otp.setExpiresAt(now.plus(ttl));
+        otpRepository.save(otp);
+        return code;
+    }
+
+    @Override
+    @Transactional
+    public VerifyResult verify(String email, String code) {
+        Optional<Otp> otpOptional = otpRepository.findFirstByEmailOrderByIdDesc(email);
+        if (otpOptional.isEmpty()) {
+            return VerifyResult.INVALID;
+        }
+
+        Otp otp = otpOptional.get();
+        if (LocalDateTime.now().isAfter(otp.getExpiresAt())) {
+            otpRepository.delete(otp);
+            return VerifyResult.EXPIRED;
+        }
+        if (OtpCodes.matches(otp.getOtpCode(), code)) {
+            // Xoá có điều kiện: hai request cùng mã thì chỉ một request xoá được dòng
+            return otpRepository.deleteByIdReturningCount(otp.getId()) == 1 ? VerifyResult.VERIFIED : VerifyResult.INVALID;
+        }
+        if (otpRepository.incrementAttempts(otp.getId()) >= maxAttempts) {
+            otpRepository.delete(otp);
+            return VerifyResult.TOO_MANY_ATTEMPTS;
+        }
+        return VerifyResult.INVALID;
+    }
+
+    @Override
+    @Transactional
+    public void invalidate(String email) {
+        otpRepository.deleteByEmail(email);
+    }
+
+    @Override
+    public Duration getTtl() {
+        return ttl;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.todo.service;
+
+// Hàng đợi mail đã đầy, caller nên trả 503 để client thử lại sau
+public class MailBacklogFullException extends RuntimeException {
+    public MailBacklogFullException(long pending) {
+        super("Mail backlog is full (" + pending + " pending)");
+    }
+}
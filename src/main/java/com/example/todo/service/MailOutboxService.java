@@ -0,0 +1,229 @@
+package com.example.todo.service;
+
+import com.example.todo.entity.MailOutbox;
+import com.example.todo.repository.MailOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outbox cho mail gửi đi: request chỉ ghi một dòng vào mail_outbox trong transaction của nó rồi trả về ngay,
+ * job nền nhận từng lô, gửi cả lô qua một kết nối SMTP và thử lại với backoff luỹ thừa khi lỗi.
+ * Không có transaction/connection DB nào bị giữ trong lúc nói chuyện với SMTP.
+ */
+@Service
+public class MailOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MailOutboxService.class);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final MailOutboxRepository outboxRepository;
+    private final JavaMailSender mailSender;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long maxPending;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+
+    // Ước lượng số mail đang chờ: làm mới bằng COUNT mỗi vòng dispatch, cộng dồn khi enqueue
+    private final AtomicLong pendingEstimate = new AtomicLong();
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+
+    public MailOutboxService(MailOutboxRepository outboxRepository,
+                             JavaMailSender mailSender,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.mail.outbox.batch-size:20}") int batchSize,
+                             @Value("${app.mail.outbox.max-pending:1000}") long maxPending,
+                             @Value("${app.mail.outbox.max-attempts:8}") int maxAttempts,
+                             @Value("${app.mail.outbox.initial-backoff:30s}") Duration initialBackoff,
+                             @Value("${app.mail.outbox.max-backoff:1h}") Duration maxBackoff,
+                             @Value("${app.mail.outbox.lease:2m}") Duration lease) {
+        this.outboxRepository = outboxRepository;
+        this.mailSender = mailSender;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.lease = lease;
+    }
+
+    /**
+     * Ghi mail vào outbox trong transaction hiện tại (mail chỉ được gửi nếu transaction commit).
+     *
+     * @throws MailBacklogFullException nếu hàng đợi đã vượt giới hạn
+     */
+    @Transactional
+    public void enqueue(String recipient, String subject, String body) {
+        long pending = pendingEstimate.get();
+        if (pending >= maxPending) {
+            rejected.increment();
+            throw new MailBacklogFullException(pending);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        MailOutbox mail = new MailOutbox();
+        mail.setRecipient(recipient);
+        mail.setSubject(subject);
+        mail.setBody(body);
+        mail.setNextAttemptAt(now);
+        mail.setCreatedAt(now);
+        outboxRepository.save(mail);
+
+        pendingEstimate.incrementAndGet();
+        enqueued.increment();
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.outbox.poll-interval:1000}")
+    public void dispatch() {
+        try {
+            pendingEstimate.set(outboxRepository.countByStatus(MailOutbox.STATUS_PENDING));
+            List<MailOutbox> batch;
+            do {
+                LocalDateTime now = LocalDateTime.now();
+                batch = transactionTemplate.execute(status -> outboxRepository.claimDue(now, now.plus(lease), batchSize));
+                if (batch == null || batch.isEmpty()) {
+                    return;
+                }
+                sendBatch(batch);
+            } while (batch.size() == batchSize);
+        } catch (Exception e) {
+            logger.error("Mail outbox dispatch failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void sendBatch(List<MailOutbox> batch) {
+        Map<SimpleMailMessage, MailOutbox> byMessage = new IdentityHashMap<>();
+        SimpleMailMessage[] messages = new SimpleMailMessage[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            MailOutbox mail = batch.get(i);
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setTo(mail.getRecipient());
+            message.setSubject(mail.getSubject());
+            message.setText(mail.getBody());
+            messages[i] = message;
+            byMessage.put(message, mail);
+        }
+
+        // JavaMailSender gửi cả mảng qua cùng một kết nối SMTP
+        Map<MailOutbox, Exception> failures = new IdentityHashMap<>();
+        try {
+            mailSender.send(messages);
+        } catch (MailSendException e) {
+            e.getFailedMessages().forEach((message, error) -> {
+                MailOutbox mail = byMessage.get(message);
+                if (mail != null) {
+                    failures.put(mail, error);
+                }
+            });
+            if (failures.isEmpty()) {
+                batch.forEach(mail -> failures.put(mail, e));
+            }
+        } catch (MailException e) {
+            batch.forEach(mail -> failures.put(mail, e));
+        }
+
+        List<Long> sentIds = new ArrayList<>();
+        for (MailOutbox mail : batch) {
+            if (!failures.containsKey(mail)) {
+                sentIds.add(mail.getId());
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!sentIds.isEmpty()) {
+                outboxRepository.deleteAllByIdIn(sentIds);
+            }
+            if (!failures.isEmpty()) {
+                reschedule(failures);
+            }
+        });
+        sent.add(sentIds.size());
+        pendingEstimate.addAndGet(-sentIds.size());
+    }
+
+    private void reschedule(Map<MailOutbox, Exception> failures) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = failures.keySet().stream().map(MailOutbox::getId).toList();
+        Map<Long, Exception> errors = new HashMap<>();
+        failures.forEach((mail, error) -> errors.put(mail.getId(), error));
+
+        for (MailOutbox mail : outboxRepository.findAllById(ids)) {
+            Exception error = errors.get(mail.getId());
+            mail.setLastError(truncate(error.getMessage()));
+            if (mail.getAttempts() >= maxAttempts) {
+                mail.setStatus(MailOutbox.STATUS_FAILED);
+                deadLettered.increment();
+                pendingEstimate.decrementAndGet();
+                logger.error("Giving up on mail id={} after {} attempts: {}", mail.getId(), mail.getAttempts(), error.getMessage());
+            } else {
+                mail.setNextAttemptAt(now.plus(backoff(mail.getAttempts())));
+                retried.increment();
+                logger.warn("Mail id={} failed (attempt {}), retrying at {}: {}",
+                        mail.getId(), mail.getAttempts(), mail.getNextAttemptAt(), error.getMessage());
+            }
+        }
+    }
+
+    private Duration backoff(int attempts) {
+        int shift = Math.min(Math.max(attempts - 1, 0), 20);
+        Duration delay = initialBackoff.multipliedBy(1L << shift);
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() <= MAX_ERROR_LENGTH ? message : message.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    public long getPendingEstimate() {
+        return pendingEstimate.get();
+    }
+
+    public long getEnqueued() {
+        return enqueued.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getSent() {
+        return sent.sum();
+    }
+
+    public long getRetried() {
+        return retried.sum();
+    }
+
+    public long getDeadLettered() {
+        return deadLettered.sum();
+    }
+}
@@ -1,8 +1,12 @@
 package com.example.todo.service;
 
 import com.example.todo.repository.OtpRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -10,15 +14,23 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 
+// Chỉ cần khi OTP nằm trong DB; store trong bộ nhớ tự hết hạn
 @Service
+@ConditionalOnProperty(name = "app.otp.store", havingValue = "jpa")
 public class OtpCleanupService {
 
     private static final Logger logger = LoggerFactory.getLogger(OtpCleanupService.class);
 
     private final OtpRepository otpRepository;
+    private final Timer cleanupTimer;
+    private final Counter deletedOtps;
+    private final Counter failedRuns;
 
-    public OtpCleanupService(OtpRepository otpRepository) {
+    public OtpCleanupService(OtpRepository otpRepository, MeterRegistry meterRegistry) {
         this.otpRepository = otpRepository;
+        this.cleanupTimer = Timer.builder("otp.cleanup").description("Expired OTP sweep duration").register(meterRegistry);
+        this.deletedOtps = Counter.builder("otp.cleanup.deleted").description("Expired OTPs deleted").register(meterRegistry);
+        this.failedRuns = Counter.builder("otp.cleanup.failures").description("Failed OTP sweeps").register(meterRegistry);
     }
 
     /**
@@ -29,15 +41,20 @@ public class OtpCleanupService {
     @Transactional // cần annotation này để JPA có transaction khi xoá
     public void cleanupExpiredOtps() {
         LocalDateTime now = LocalDateTime.now(ZoneId.of("Asia/Ho_Chi_Minh"));
+        Timer.Sample sample = Timer.start();
         try {
             int deletedCount = otpRepository.deleteAllByExpiresAtBefore(now); // đếm số OTP xoá
+            deletedOtps.increment(deletedCount);
             if (deletedCount > 0) {
                 logger.info("Đã dọn {} OTP hết hạn lúc {} (Asia/Ho_Chi_Minh)", deletedCount, now);
             } else {
                 logger.debug("Không có OTP nào hết hạn lúc {} (Asia/Ho_Chi_Minh)", now);
             }
         } catch (Exception e) {
+            failedRuns.increment();
             logger.error("Lỗi khi dọn dẹp OTP: {}", e.getMessage(), e);
+        } finally {
+            sample.stop(cleanupTimer);
         }
     }
 }
\ No newline at end of file
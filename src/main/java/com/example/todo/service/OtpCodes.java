@@ -0,0 +1,25 @@
+package com.example.todo.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+// Sinh và so sánh mã OTP, dùng chung cho các OtpStore
+final class OtpCodes {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private OtpCodes() {}
+
+    static String generate() {
+        return String.format("%06d", RANDOM.nextInt(1_000_000));
+    }
+
+    // So sánh thời gian hằng, không lộ số ký tự đúng qua thời gian phản hồi
+    static boolean matches(String expected, String actual) {
+        if (expected == null || actual == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.US_ASCII), actual.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.todo.service;
+
+import java.time.Duration;
+
+/**
+ * Nơi lưu OTP đặt lại mật khẩu. Mỗi email chỉ có một OTP còn hiệu lực; phát OTP mới thì OTP cũ mất hiệu lực.
+ *
+ * app.otp.store=memory (mặc định): InMemoryOtpStore, không ghi DB — chỉ đúng khi chạy một instance
+ * (hoặc load balancer sticky theo email). app.otp.store=jpa: JpaOtpStore trên bảng otps, dùng cho nhiều node.
+ */
+public interface OtpStore {
+
+    enum VerifyResult { VERIFIED, INVALID, EXPIRED, TOO_MANY_ATTEMPTS }
+
+    // Sinh OTP mới cho email (thay OTP cũ nếu có) và trả về mã để gửi mail
+    String issue(String email);
+
+    // Đúng mã thì OTP bị tiêu thụ; sai quá số lần cho phép thì OTP bị huỷ
+    VerifyResult verify(String email, String code);
+
+    void invalidate(String email);
+
+    Duration getTtl();
+}
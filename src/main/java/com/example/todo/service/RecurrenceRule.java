@@ -0,0 +1,51 @@
+package com.example.todo.service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Luật lặp của TaskDetail.repeat ("daily", "weekly", "monthly", "yearly"; "none"/null/khác = không lặp).
+ * Lần thứ n luôn tính từ mốc (due_date) chứ không cộng dồn, nên lặp hằng tháng từ ngày 31 cho ra
+ * 28/2 rồi 31/3 thay vì trôi về ngày 28.
+ */
+public enum RecurrenceRule {
+    DAILY(ChronoUnit.DAYS),
+    WEEKLY(ChronoUnit.WEEKS),
+    MONTHLY(ChronoUnit.MONTHS),
+    YEARLY(ChronoUnit.YEARS);
+
+    private final ChronoUnit unit;
+
+    RecurrenceRule(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    public static Optional<RecurrenceRule> parse(String repeat) {
+        if (repeat == null) {
+            return Optional.empty();
+        }
+        return switch (repeat.trim().toLowerCase(Locale.ROOT)) {
+            case "daily" -> Optional.of(DAILY);
+            case "weekly" -> Optional.of(WEEKLY);
+            case "monthly" -> Optional.of(MONTHLY);
+            case "yearly" -> Optional.of(YEARLY);
+            default -> Optional.empty();
+        };
+    }
+
+    /**
+     * Các lần xảy ra trong [from, to), sinh lười. Nhảy thẳng tới gần lần đầu >= from
+     * (không duyệt từ mốc), nên chi phí chỉ phụ thuộc số lần nằm trong cửa sổ.
+     */
+    public Stream<LocalDateTime> occurrences(LocalDateTime anchor, LocalDateTime from, LocalDateTime to) {
+        // between() đếm số chu kỳ trọn vẹn; lùi một bước phòng trường hợp ngày bị kẹp cuối tháng
+        long first = from.isAfter(anchor) ? Math.max(0, unit.between(anchor, from) - 1) : 0;
+        return Stream.iterate(first, n -> n + 1)
+                .map(n -> anchor.plus(n, unit))
+                .dropWhile(occurrence -> occurrence.isBefore(from))
+                .takeWhile(occurrence -> occurrence.isBefore(to));
+    }
+}
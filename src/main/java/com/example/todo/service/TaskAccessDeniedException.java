@@ -0,0 +1,7 @@
+package com.example.todo.service;
+
+public class TaskAccessDeniedException extends RuntimeException {
+    public TaskAccessDeniedException(Long id) {
+        super("You do not have permission to modify task " + id);
+    }
+}
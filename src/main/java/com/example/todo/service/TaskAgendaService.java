@@ -0,0 +1,138 @@
+package com.example.todo.service;
+
+import com.example.todo.dto.TaskAgendaEntry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Agenda cho view lịch: mọi lần xảy ra của task của user trong [from, to).
+ * Phần nằm trong cửa sổ đã index ({@link TaskOccurrenceIndex}) là một range scan trên
+ * idx_task_occurrences_user_occurs_at; chỉ phần ngoài cửa sổ (quá khứ xa / xa hơn horizon) mới đọc các task lặp
+ * của user và sinh lười bằng {@link RecurrenceRule}.
+ * Đọc cửa sổ và hai query trong cùng một snapshot (read-only, REPEATABLE READ) để job nới cửa sổ commit xen giữa
+ * không làm thiếu hay lặp lần lặp.
+ */
+@Service
+public class TaskAgendaService {
+
+    private static final Comparator<TaskAgendaEntry> ORDER =
+            Comparator.comparing(TaskAgendaEntry::occursAt).thenComparing(TaskAgendaEntry::taskId);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readTransaction;
+    private final TaskOccurrenceIndex occurrenceIndex;
+    private final Duration maxWindow;
+    private final DbTimestamps timestamps;
+    private final RowMapper<TaskAgendaEntry> indexedRow;
+
+    public TaskAgendaService(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             TaskOccurrenceIndex occurrenceIndex,
+                             @Value("${app.tasks.agenda.max-window:366d}") Duration maxWindow,
+                             @Value("${spring.jpa.properties.hibernate.jdbc.time_zone:}") String jdbcTimeZone) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.readTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.occurrenceIndex = occurrenceIndex;
+        this.maxWindow = maxWindow;
+        this.timestamps = new DbTimestamps(jdbcTimeZone);
+        this.indexedRow = (rs, i) -> new TaskAgendaEntry(
+                rs.getLong("task_id"), timestamps.fromDb(rs.getTimestamp("occurs_at")), rs.getBoolean("recurring"),
+                rs.getString("title"), rs.getBoolean("completed"), rs.getString("type"),
+                (Integer) rs.getObject("priority"), rs.getString("duration"), rs.getString("repeat"));
+    }
+
+    public List<TaskAgendaEntry> findAgenda(Long userId, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        if (Duration.between(from, to).compareTo(maxWindow) > 0) {
+            throw new IllegalArgumentException("Agenda range must not exceed " + maxWindow.toDays() + " days");
+        }
+        return readTransaction.execute(status -> readAgenda(userId, from, to));
+    }
+
+    private List<TaskAgendaEntry> readAgenda(Long userId, LocalDateTime from, LocalDateTime to) {
+        TaskOccurrenceIndex.Window window = occurrenceIndex.currentWindow();
+        List<TaskAgendaEntry> entries = jdbcTemplate.query("""
+                        SELECT o.task_id, o.occurs_at, o.recurring, t.title, t.completed, t.type,
+                               d.priority, d.duration, d.repeat
+                        FROM todo_schema.task_occurrences o
+                        JOIN todo_schema.tasks t ON t.id = o.task_id
+                        JOIN todo_schema.task_details d ON d.task_id = o.task_id
+                        WHERE o.user_id = ? AND o.occurs_at >= ? AND o.occurs_at < ?
+                        ORDER BY o.occurs_at, o.task_id""",
+                indexedRow, userId, timestamps.toDb(from), timestamps.toDb(to));
+        if (window.covers(from, to)) {
+            return entries;
+        }
+
+        // Ngoài cửa sổ chỉ tin dòng task một lần (lần lặp ở đó có thể đang sinh dở hoặc chờ xoá):
+        // bổ sung lần lặp bằng cách sinh lười
+        List<TaskAgendaEntry> merged = new ArrayList<>(entries.size());
+        for (TaskAgendaEntry entry : entries) {
+            if (!entry.recurring() || window.contains(entry.occursAt())) {
+                merged.add(entry);
+            }
+        }
+        jdbcTemplate.query("""
+                        SELECT t.id, t.title, t.completed, t.type, d.due_date, d.priority, d.duration, d.repeat
+                        FROM todo_schema.tasks t
+                        JOIN todo_schema.task_details d ON d.task_id = t.id
+                        WHERE t.user_id = ? AND d.due_date IS NOT NULL AND d.due_date < ? AND d.repeat IS NOT NULL""",
+                rs -> {
+                    Optional<RecurrenceRule> rule = RecurrenceRule.parse(rs.getString("repeat"));
+                    if (rule.isEmpty()) {
+                        return;
+                    }
+                    long taskId = rs.getLong("id");
+                    String title = rs.getString("title");
+                    boolean completed = rs.getBoolean("completed");
+                    String type = rs.getString("type");
+                    LocalDateTime anchor = timestamps.fromDb(rs.getTimestamp("due_date"));
+                    Integer priority = (Integer) rs.getObject("priority");
+                    String duration = rs.getString("duration");
+                    String repeat = rs.getString("repeat");
+                    for (LocalDateTime[] segment : uncovered(window, from, to)) {
+                        rule.get().occurrences(anchor, segment[0], segment[1]).forEach(occurrence -> merged.add(
+                                new TaskAgendaEntry(taskId, occurrence, true, title, completed, type, priority, duration, repeat)));
+                    }
+                },
+                userId, timestamps.toDb(to));
+        merged.sort(ORDER);
+        return merged;
+    }
+
+    // Các đoạn của [from, to) nằm ngoài cửa sổ đã index: trước covered_from và/hoặc từ covered_to
+    private static List<LocalDateTime[]> uncovered(TaskOccurrenceIndex.Window window, LocalDateTime from, LocalDateTime to) {
+        List<LocalDateTime[]> segments = new ArrayList<>(2);
+        if (from.isBefore(window.from())) {
+            segments.add(new LocalDateTime[]{from, min(to, window.from())});
+        }
+        if (to.isAfter(window.to())) {
+            segments.add(new LocalDateTime[]{max(from, window.to()), to});
+        }
+        return segments;
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
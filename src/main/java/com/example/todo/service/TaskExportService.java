@@ -0,0 +1,84 @@
+package com.example.todo.service;
+
+import com.example.todo.model.Task;
+import com.example.todo.repository.TaskRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Export toàn bộ task của user bằng cách stream từng dòng từ DB ra thẳng response.
+ * Bộ nhớ dùng không phụ thuộc số task: persistence context được clear sau mỗi lô fetch.
+ */
+@Service
+public class TaskExportService {
+
+    public enum Format {
+        JSON, NDJSON;
+
+        public static Optional<Format> fromParam(String param) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(param.trim())) {
+                    return Optional.of(format);
+                }
+            }
+            return Optional.empty();
+        }
+    }
+
+    private final TaskRepository taskRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTx;
+    private final ObjectWriter jsonWriter;
+
+    public TaskExportService(TaskRepository taskRepository, EntityManager entityManager,
+                             PlatformTransactionManager transactionManager, ObjectMapper objectMapper) {
+        this.taskRepository = taskRepository;
+        this.entityManager = entityManager;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        // Response stream do Spring đóng, writer không được tự đóng nó; chỉ flush theo lô chứ không sau mỗi dòng
+        this.jsonWriter = objectMapper.writerFor(Task.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public void export(Long userId, Format format, OutputStream out) {
+        readOnlyTx.executeWithoutResult(status -> {
+            try (Stream<Task> tasks = taskRepository.streamAllByUserId(userId);
+                 SequenceWriter writer = format == Format.NDJSON
+                         ? jsonWriter.withRootValueSeparator("\n").writeValues(out)
+                         : jsonWriter.writeValuesAsArray(out)) {
+                int count = 0;
+                Iterator<Task> it = tasks.iterator();
+                while (it.hasNext()) {
+                    writer.write(it.next());
+                    if (++count % TaskRepository.EXPORT_FETCH_SIZE == 0) {
+                        writer.flush();
+                        entityManager.clear();
+                    }
+                }
+                if (format == Format.NDJSON && count > 0) {
+                    // Dòng cuối còn nằm trong buffer của writer: đẩy ra trước rồi mới ghi newline thẳng vào stream
+                    writer.flush();
+                    out.write('\n');
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.todo.service;
+
+import com.example.todo.dto.TaskView;
+import com.example.todo.event.TaskChangeEvent;
+import com.example.todo.event.TaskEventBroker;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Cache JSON của GET /api/tasks theo user: hit thì trả thẳng byte đã serialize, không chạm DB và Jackson.
+ * Miss thì serialize {@link TaskView} (record, không phải entity) bằng một ObjectWriter dựng sẵn.
+ *
+ * Giới hạn theo tổng số byte (Caffeine, W-TinyLFU). Invalidate chính xác theo user khi có {@link TaskChangeEvent}
+ * từ {@link TaskEventBroker} (sau commit; broker nhiều node giao cả sự kiện của node khác), TTL chỉ là lưới an toàn.
+ *
+ * Chống ghi đè dữ liệu cũ: load đọc "generation" của user trước khi query và chỉ lưu kết quả nếu generation
+ * chưa đổi — invalidate xen giữa lúc đọc DB và lúc lưu sẽ làm kết quả đó bị bỏ.
+ * Generation chia theo stripe (hash user id) nên bộ nhớ cố định; user chung stripe chỉ chịu thêm một lần miss.
+ */
+@Service
+public class TaskListCache {
+
+    private static final int GENERATION_STRIPES = 1024;
+    // Ước lượng overhead của một entry (key Long, node Caffeine, header mảng)
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final ObjectWriter writer;
+    private final Cache<Long, byte[]> cache;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    private final TaskEventBroker broker;
+    private TaskEventBroker.Subscription subscription;
+
+    public TaskListCache(ObjectMapper objectMapper,
+                         TaskEventBroker broker,
+                         @Value("${app.tasks.cache.enabled:true}") boolean enabled,
+                         @Value("${app.tasks.cache.max-memory:64MB}") DataSize maxMemory,
+                         @Value("${app.tasks.cache.ttl:10m}") Duration ttl) {
+        this.writer = objectMapper.writerFor(new TypeReference<List<TaskView>>() { });
+        this.cache = enabled
+                ? Caffeine.newBuilder()
+                        .maximumWeight(maxMemory.toBytes())
+                        .weigher((Long userId, byte[] body) -> body.length + ENTRY_OVERHEAD_BYTES)
+                        .expireAfterWrite(ttl)
+                        .recordStats()
+                        .build()
+                : null;
+        this.broker = broker;
+    }
+
+    // Đăng ký sau khi dựng xong, không để this lọt ra broker từ constructor
+    @PostConstruct
+    void subscribe() {
+        if (cache != null) {
+            subscription = broker.subscribeAll(this::onTaskChange);
+        }
+    }
+
+    /**
+     * JSON danh sách task của user; miss thì gọi loader (query DB) rồi serialize và lưu lại.
+     */
+    public byte[] get(Long userId, Supplier<List<TaskView>> loader) {
+        if (cache == null) {
+            return serialize(loader.get());
+        }
+        byte[] cached = cache.getIfPresent(userId);
+        if (cached != null) {
+            return cached;
+        }
+
+        int stripe = stripe(userId);
+        long generation = generations.get(stripe);
+        byte[] body = serialize(loader.get());
+        cache.asMap().compute(userId, (id, existing) -> generations.get(stripe) == generation ? body : existing);
+        return body;
+    }
+
+    public void invalidate(Long userId) {
+        if (cache == null) {
+            return;
+        }
+        // Tăng generation trước khi xoá: load đang chạy dở sẽ không lưu được bản cũ
+        generations.incrementAndGet(stripe(userId));
+        cache.invalidate(userId);
+    }
+
+    // null khi cache tắt
+    public Cache<Long, byte[]> getNativeCache() {
+        return cache;
+    }
+
+    public long getWeightedSize() {
+        return cache == null ? 0 : cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    private void onTaskChange(TaskChangeEvent event) {
+        invalidate(event.userId());
+    }
+
+    private byte[] serialize(List<TaskView> tasks) {
+        try {
+            return writer.writeValueAsBytes(tasks);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize task list", e);
+        }
+    }
+
+    private static int stripe(Long userId) {
+        return (Long.hashCode(userId) & 0x7fffffff) % GENERATION_STRIPES;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (subscription != null) {
+            subscription.close();
+        }
+    }
+}
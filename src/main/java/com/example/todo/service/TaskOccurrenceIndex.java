@@ -0,0 +1,284 @@
+package com.example.todo.service;
+
+import com.example.todo.model.Task;
+import com.example.todo.model.TaskDetail;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Duy trì bảng task_occurrences cho GET /api/tasks/agenda.
+ *
+ * Task một lần có đúng một dòng tại due_date. Task lặp có mọi lần lặp trong cửa sổ [covered_from, covered_to)
+ * của task_occurrence_window; job hằng ngày nới covered_to thêm một đoạn (chỉ sinh phần mới) và xoá lần lặp
+ * đã quá app.tasks.agenda.retention. TaskService gọi {@link #refresh} trong chính transaction ghi, và chỉ khi
+ * due_date/repeat đổi, nên index luôn khớp với dữ liệu đã commit.
+ *
+ * Khoá: ghi task lấy FOR SHARE trên dòng cửa sổ và sinh tới max(covered_to, extending_to). Job chỉ khoá cửa sổ
+ * (FOR UPDATE) trong hai transaction ngắn: ghi extending_to trước khi sinh, nới covered_to sau khi sinh xong.
+ * Phần sinh ở giữa chạy theo từng nhóm user, mỗi nhóm một transaction giữ FOR SHARE trên các dòng users đó:
+ * mọi đường ghi task đều khoá dòng user trước (UserRepository.nextChangeVersion), nên một nhóm không bao giờ
+ * đan xen với lần ghi task của chính các user đó.
+ */
+@Service
+public class TaskOccurrenceIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskOccurrenceIndex.class);
+    private static final int BATCH_SIZE = 500;
+    // Số user mỗi transaction sinh lần lặp: ghi task của các user này phải đợi nhóm commit
+    private static final int USERS_PER_CHUNK = 50;
+    private static final int TRIM_CHUNK = 5000;
+    private static final String INSERT_SQL = "INSERT INTO todo_schema.task_occurrences (task_id, occurs_at, user_id, recurring)"
+            + " VALUES (?, ?, ?, ?) ON CONFLICT DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskScheduler taskScheduler;
+    private final Duration horizon;
+    private final Duration retention;
+    private final DbTimestamps timestamps;
+
+    public TaskOccurrenceIndex(JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               TaskScheduler taskScheduler,
+                               @Value("${app.tasks.agenda.horizon:90d}") Duration horizon,
+                               @Value("${app.tasks.agenda.retention:30d}") Duration retention,
+                               @Value("${spring.jpa.properties.hibernate.jdbc.time_zone:}") String jdbcTimeZone) {
+        // Bản riêng có fetch size để job đọc task lặp theo cursor, không load hết vào bộ nhớ
+        this.jdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.jdbcTemplate.setFetchSize(BATCH_SIZE);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.taskScheduler = taskScheduler;
+        this.horizon = horizon;
+        this.retention = retention;
+        this.timestamps = new DbTimestamps(jdbcTimeZone);
+    }
+
+    /**
+     * Khoảng thời gian mà mọi lần lặp đều đã nằm trong task_occurrences.
+     * extendingTo: mốc job đang sinh tới (null nếu không chạy); dòng ngoài [from, to) chưa chắc đủ.
+     */
+    public record Window(LocalDateTime from, LocalDateTime to, LocalDateTime extendingTo) {
+        public boolean covers(LocalDateTime rangeFrom, LocalDateTime rangeTo) {
+            return !rangeFrom.isBefore(from) && !rangeTo.isAfter(to);
+        }
+
+        public boolean contains(LocalDateTime occursAt) {
+            return !occursAt.isBefore(from) && occursAt.isBefore(to);
+        }
+
+        // Ghi task sinh lần lặp tới đây để không hở khoảng job đang sinh dở
+        LocalDateTime generateTo() {
+            return extendingTo != null && extendingTo.isAfter(to) ? extendingTo : to;
+        }
+    }
+
+    public Window currentWindow() {
+        return readWindow("");
+    }
+
+    /**
+     * Sinh lại dòng của các task (phải gọi trong transaction ghi, sau khi task đã được flush).
+     * replaceExisting = false với task vừa tạo: chưa có dòng nào nên bỏ qua khoá và DELETE.
+     */
+    public void refresh(Long userId, Collection<Task> tasks, boolean replaceExisting) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        boolean anyRecurring = tasks.stream().anyMatch(task -> ruleOf(task).isPresent());
+        Window window = replaceExisting || anyRecurring ? readWindow("FOR SHARE") : null;
+        if (replaceExisting) {
+            jdbcTemplate.update("DELETE FROM todo_schema.task_occurrences WHERE task_id = ANY(?)",
+                    (Object) tasks.stream().map(Task::getId).toArray(Long[]::new));
+        }
+
+        List<Object[]> rows = new ArrayList<>();
+        for (Task task : tasks) {
+            TaskDetail detail = task.getTaskDetail();
+            if (detail == null || detail.getDueDate() == null) {
+                continue;
+            }
+            Optional<RecurrenceRule> rule = ruleOf(task);
+            if (rule.isEmpty()) {
+                rows.add(row(task.getId(), detail.getDueDate(), userId, false));
+            } else {
+                rule.get().occurrences(detail.getDueDate(), window.from(), window.generateTo())
+                        .forEach(occurrence -> rows.add(row(task.getId(), occurrence, userId, true)));
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        }
+    }
+
+    // Bắt kịp sau downtime / lần đầu sau migration trên thread của scheduler, không chặn lúc khởi động
+    @EventListener(ApplicationReadyEvent.class)
+    public void catchUpOnStartup() {
+        taskScheduler.schedule(this::extendWindow, Instant.now());
+    }
+
+    /**
+     * Nới cửa sổ tới hôm nay + horizon (chỉ sinh đoạn mới cho các task lặp) và xoá lần lặp trước
+     * hôm nay - retention. Chạy lại an toàn (kể cả song song trên nhiều node): INSERT bỏ qua dòng đã có,
+     * cửa sổ chỉ được nới ra, không thu lại.
+     */
+    @Scheduled(cron = "${app.tasks.agenda.maintenance-cron:0 10 0 * * *}")
+    public void extendWindow() {
+        try {
+            LocalDateTime today = LocalDate.now().atStartOfDay();
+            LocalDateTime targetTo = today.plus(horizon);
+            Window current = transactionTemplate.execute(status -> {
+                Window window = readWindow("FOR UPDATE");
+                if (targetTo.isAfter(window.generateTo())) {
+                    jdbcTemplate.update("UPDATE todo_schema.task_occurrence_window SET extending_to = ? WHERE id = 1",
+                            timestamps.toDb(targetTo));
+                }
+                return window;
+            });
+            LocalDateTime targetFrom = max(current.from(), today.minus(retention));
+            LocalDateTime generateFrom = max(current.to(), targetFrom);
+
+            long generated = 0;
+            if (targetTo.isAfter(generateFrom)) {
+                generated = generateRecurring(generateFrom, targetTo);
+            }
+            Window advanced = transactionTemplate.execute(status -> {
+                Window window = readWindow("FOR UPDATE");
+                LocalDateTime from = max(window.from(), targetFrom);
+                LocalDateTime to = max(window.to(), targetTo);
+                LocalDateTime extendingTo = window.extendingTo() != null && window.extendingTo().isAfter(to)
+                        ? window.extendingTo() : null;
+                jdbcTemplate.update("UPDATE todo_schema.task_occurrence_window"
+                                + " SET covered_from = ?, covered_to = ?, extending_to = ? WHERE id = 1",
+                        timestamps.toDb(from), timestamps.toDb(to),
+                        extendingTo != null ? timestamps.toDb(extendingTo) : null);
+                return new Window(from, to, extendingTo);
+            });
+            long trimmed = trimRecurring(advanced.from());
+            logger.info("Task occurrence window now [{}, {}): {} occurrences generated, {} trimmed",
+                    advanced.from(), advanced.to(), generated, trimmed);
+        } catch (Exception e) {
+            logger.error("Task occurrence window maintenance failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // Sinh lần lặp trong [from, to) cho các task lặp, từng nhóm user theo id, mỗi nhóm một transaction
+    private long generateRecurring(LocalDateTime from, LocalDateTime to) {
+        long generated = 0;
+        Chunk chunk = new Chunk(0L, 0);
+        while (chunk.lastUserId() != null) {
+            long after = chunk.lastUserId();
+            chunk = transactionTemplate.execute(status -> generateChunk(after, from, to));
+            generated += chunk.generated();
+        }
+        return generated;
+    }
+
+    // lastUserId = null khi không còn user nào sau nhóm trước
+    private record Chunk(Long lastUserId, long generated) {
+    }
+
+    // Khoá FOR SHARE tối đa USERS_PER_CHUNK user có task lặp (theo thứ tự id), rồi đọc task lặp của họ theo cursor
+    // và ghi lần lặp theo lô
+    private Chunk generateChunk(long afterUserId, LocalDateTime from, LocalDateTime to) {
+        Long[] userIds = jdbcTemplate.queryForList("""
+                        SELECT u.id FROM todo_schema.users u
+                        WHERE u.id = ANY(ARRAY(
+                            SELECT DISTINCT t.user_id
+                            FROM todo_schema.tasks t
+                            JOIN todo_schema.task_details d ON d.task_id = t.id
+                            WHERE t.user_id > ? AND d.due_date IS NOT NULL AND d.due_date < ? AND d.repeat IS NOT NULL
+                            ORDER BY t.user_id
+                            LIMIT ?))
+                        ORDER BY u.id
+                        FOR SHARE""",
+                Long.class, afterUserId, timestamps.toDb(to), USERS_PER_CHUNK).toArray(Long[]::new);
+        if (userIds.length == 0) {
+            return new Chunk(null, 0);
+        }
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        long[] generated = {0};
+        jdbcTemplate.query("""
+                        SELECT t.id, t.user_id, d.due_date, d.repeat
+                        FROM todo_schema.tasks t
+                        JOIN todo_schema.task_details d ON d.task_id = t.id
+                        WHERE t.user_id = ANY(?) AND d.due_date IS NOT NULL AND d.due_date < ? AND d.repeat IS NOT NULL""",
+                rs -> {
+                    Optional<RecurrenceRule> rule = RecurrenceRule.parse(rs.getString(4));
+                    if (rule.isEmpty()) {
+                        return;
+                    }
+                    long taskId = rs.getLong(1);
+                    long userId = rs.getLong(2);
+                    rule.get().occurrences(timestamps.fromDb(rs.getTimestamp(3)), from, to).forEach(occurrence -> {
+                        rows.add(row(taskId, occurrence, userId, true));
+                        if (rows.size() == BATCH_SIZE) {
+                            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+                            generated[0] += rows.size();
+                            rows.clear();
+                        }
+                    });
+                },
+                userIds, timestamps.toDb(to));
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+            generated[0] += rows.size();
+        }
+        return new Chunk(userIds[userIds.length - 1], generated[0]);
+    }
+
+    // Xoá lần lặp trước covered_from theo từng phần, không khoá cửa sổ: đoạn này đã nằm ngoài cửa sổ nên
+    // agenda bỏ qua và ghi task không sinh vào nữa
+    private long trimRecurring(LocalDateTime before) {
+        long trimmed = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update("""
+                            DELETE FROM todo_schema.task_occurrences
+                            WHERE ctid = ANY(ARRAY(
+                                SELECT ctid FROM todo_schema.task_occurrences
+                                WHERE recurring AND occurs_at < ?
+                                LIMIT ?))""",
+                    timestamps.toDb(before), TRIM_CHUNK);
+            trimmed += deleted;
+        } while (deleted == TRIM_CHUNK);
+        return trimmed;
+    }
+
+    private Window readWindow(String lockClause) {
+        return jdbcTemplate.queryForObject(
+                "SELECT covered_from, covered_to, extending_to FROM todo_schema.task_occurrence_window WHERE id = 1 " + lockClause,
+                (rs, i) -> new Window(timestamps.fromDb(rs.getTimestamp(1)), timestamps.fromDb(rs.getTimestamp(2)),
+                        rs.getTimestamp(3) != null ? timestamps.fromDb(rs.getTimestamp(3)) : null));
+    }
+
+    private static Optional<RecurrenceRule> ruleOf(Task task) {
+        TaskDetail detail = task.getTaskDetail();
+        return detail == null || detail.getDueDate() == null ? Optional.empty() : RecurrenceRule.parse(detail.getRepeat());
+    }
+
+    private Object[] row(long taskId, LocalDateTime occursAt, long userId, boolean recurring) {
+        return new Object[]{taskId, timestamps.toDb(occursAt), userId, recurring};
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
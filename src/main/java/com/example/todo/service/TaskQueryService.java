@@ -0,0 +1,113 @@
+package com.example.todo.service;
+
+import com.example.todo.dto.TaskChangesResponse;
+import com.example.todo.dto.TaskCursor;
+import com.example.todo.dto.TaskPageResponse;
+import com.example.todo.model.Task;
+import com.example.todo.model.TaskTombstone;
+import com.example.todo.repository.TaskRepository;
+import com.example.todo.repository.TaskTombstoneRepository;
+import com.example.todo.repository.UserRepository;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.example.todo.repository.TaskSpecifications.*;
+
+@Service
+public class TaskQueryService {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
+    private final TaskRepository taskRepository;
+    private final TaskTombstoneRepository tombstoneRepository;
+    private final UserRepository userRepository;
+
+    public TaskQueryService(TaskRepository taskRepository, TaskTombstoneRepository tombstoneRepository,
+                            UserRepository userRepository) {
+        this.taskRepository = taskRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Trả về những gì thay đổi sau version "since".
+     * Đọc version hiện tại của user trước rồi mới lấy thay đổi trong (since, version], nên thay đổi
+     * commit xen giữa hai câu query sẽ được trả ở lần sync sau thay vì bị bỏ sót.
+     * Nếu tombstone sau "since" đã bị dọn (since < tombstones_purged_through) thì không còn biết task nào đã xoá:
+     * trả toàn bộ task hiện có kèm resyncRequired. REPEATABLE READ để mốc dọn và tombstone đọc cùng một snapshot
+     * với job dọn chạy song song.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public TaskChangesResponse findChanges(Long userId, long since) {
+        UserRepository.SyncState state = userRepository.findSyncState(userId).orElse(null);
+        long version = state != null ? state.getChangeVersion() : 0L;
+        if (since >= version) {
+            return new TaskChangesResponse(version, List.of(), List.of());
+        }
+        if (since > 0 && since < state.getTombstonesPurgedThrough()) {
+            return new TaskChangesResponse(version, taskRepository.findChanged(userId, 0, version), List.of(), true);
+        }
+
+        List<Task> upserts = taskRepository.findChanged(userId, since, version);
+        List<Long> deletes = tombstoneRepository
+                .findByUserIdAndChangeVersionGreaterThanAndChangeVersionLessThanEqualOrderByChangeVersion(userId, since, version)
+                .stream()
+                .map(TaskTombstone::getTaskId)
+                .toList();
+        return new TaskChangesResponse(version, upserts, deletes);
+    }
+
+    /**
+     * Lấy một trang task theo keyset (không dùng OFFSET), lấy dư 1 dòng để biết còn trang sau hay không.
+     */
+    @Transactional(readOnly = true)
+    public TaskPageResponse findPage(Long userId, TaskCursor.Sort sort, TaskCursor cursor, int limit,
+                                     Boolean completed, String type, Integer priority,
+                                     LocalDateTime dueFrom, LocalDateTime dueTo) {
+        if (cursor != null && cursor.getSort() != sort) {
+            throw new IllegalArgumentException("Cursor does not match sort: " + sort.getParam());
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        Specification<Task> spec = Specification.allOf(
+                fetchDetail(),
+                ownedBy(userId),
+                completed(completed),
+                type(type),
+                priority(priority),
+                dueBetween(dueFrom, dueTo),
+                hasSortKey(sort),
+                after(cursor));
+
+        List<Task> rows = taskRepository.findBy(spec, q -> q.sortBy(orderOf(sort)).limit(pageSize + 1).all());
+
+        if (rows.size() <= pageSize) {
+            return new TaskPageResponse(rows, null);
+        }
+        List<Task> items = rows.subList(0, pageSize);
+        return new TaskPageResponse(List.copyOf(items), cursorOf(sort, items.get(items.size() - 1)).encode());
+    }
+
+    private static Sort orderOf(TaskCursor.Sort sort) {
+        return switch (sort) {
+            case ID -> Sort.by(Sort.Order.asc("id"));
+            case DUE_DATE -> Sort.by(Sort.Order.asc("taskDetail.dueDate"), Sort.Order.asc("id"));
+            case COMPLETED_AT -> Sort.by(Sort.Order.desc("completedAt"), Sort.Order.desc("id"));
+        };
+    }
+
+    private static TaskCursor cursorOf(TaskCursor.Sort sort, Task last) {
+        return switch (sort) {
+            case ID -> new TaskCursor(sort, null, last.getId());
+            case DUE_DATE -> new TaskCursor(sort, last.getTaskDetail().getDueDate(), last.getId());
+            case COMPLETED_AT -> new TaskCursor(sort, last.getCompletedAt(), last.getId());
+        };
+    }
+}
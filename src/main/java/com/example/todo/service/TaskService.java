@@ -0,0 +1,402 @@
+package com.example.todo.service;
+
+import com.example.todo.dto.TaskBatchRequest;
+import com.example.todo.dto.TaskBatchResult;
+import com.example.todo.dto.TaskPatch;
+import com.example.todo.event.TaskChangeEvent;
+import com.example.todo.model.Task;
+import com.example.todo.model.TaskDetail;
+import com.example.todo.model.TaskTombstone;
+import com.example.todo.repository.TaskRepository;
+import com.example.todo.repository.TaskTombstoneRepository;
+import com.example.todo.repository.UserRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Toàn bộ thao tác ghi lên task của user đi qua đây (tạo, sửa, xoá, batch).
+ * Mỗi transaction ghi lấy một change version mới của user và đóng dấu lên mọi task bị thay đổi;
+ * task bị xoá để lại tombstone cùng version đó. Sau khi commit, một {@link TaskChangeEvent} được phát
+ * cho các client đang nghe stream. Task mới hoặc đổi due_date/repeat được ghi lại vào index agenda
+ * ({@link TaskOccurrenceIndex}) trong cùng transaction.
+ */
+@Service
+public class TaskService {
+
+    public static final int MAX_BATCH_SIZE = 500;
+
+    private final TaskRepository taskRepository;
+    private final UserRepository userRepository;
+    private final TaskTombstoneRepository tombstoneRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TaskOccurrenceIndex occurrenceIndex;
+
+    public TaskService(TaskRepository taskRepository, UserRepository userRepository,
+                       TaskTombstoneRepository tombstoneRepository, ApplicationEventPublisher eventPublisher,
+                       TaskOccurrenceIndex occurrenceIndex) {
+        this.taskRepository = taskRepository;
+        this.userRepository = userRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.eventPublisher = eventPublisher;
+        this.occurrenceIndex = occurrenceIndex;
+    }
+
+    @Transactional
+    public Task create(Long userId, Task task) {
+        long version = userRepository.nextChangeVersion(userId);
+        prepareNewTask(userId, task);
+        stamp(task, version, LocalDateTime.now());
+        Task saved = taskRepository.save(task);
+        indexOccurrences(userId, List.of(saved), false);
+        eventPublisher.publishEvent(new TaskChangeEvent(userId, version, List.of(saved.getId()), List.of(), List.of()));
+        return saved;
+    }
+
+    // Tạo nhiều task trong một transaction, INSERT được batch theo JDBC
+    @Transactional
+    public List<Task> createAll(Long userId, List<Task> tasks) {
+        long version = userRepository.nextChangeVersion(userId);
+        LocalDateTime now = LocalDateTime.now();
+        tasks.forEach(task -> {
+            prepareNewTask(userId, task);
+            stamp(task, version, now);
+        });
+        List<Task> saved = taskRepository.saveAll(tasks);
+        indexOccurrences(userId, saved, false);
+        eventPublisher.publishEvent(new TaskChangeEvent(userId, version, idsOf(saved), List.of(), List.of()));
+        return saved;
+    }
+
+    @Transactional
+    public Task update(Long userId, Long id, Task updated) {
+        // Khoá dòng user trước rồi mới load: mọi lần ghi khác của user đã commit nên version load được là mới nhất
+        long version = userRepository.nextChangeVersion(userId);
+        Task task = loadOwned(userId, id);
+        Schedule before = Schedule.of(task);
+        applyUpdate(task, updated);
+        stamp(task, version, LocalDateTime.now());
+        Task saved = taskRepository.save(task);
+        if (!before.equals(Schedule.of(saved))) {
+            indexOccurrences(userId, List.of(saved), true);
+        }
+        eventPublisher.publishEvent(new TaskChangeEvent(userId, version, List.of(), List.of(id), List.of()));
+        return saved;
+    }
+
+    /**
+     * Chỉ áp dụng các field có trong patch, trả về version mới của task (ETag).
+     * expectedVersion lấy từ If-Match, null = không kiểm tra. Chỉ đổi completed thì đi một câu UPDATE
+     * ({@link TaskRepository#updateCompleted}), không load task; còn lại khoá dòng user (nextChangeVersion) rồi mới
+     * load, sửa field được gửi và flush. Mọi đường ghi đều lấy khoá này trước khi ghi task nên version load được là
+     * bản đã commit mới nhất; @Version vẫn chặn ghi đè nếu có đường ghi nào bỏ qua khoá.
+     * task_details chỉ bị UPDATE khi patch có taskDetail.
+     */
+    @Transactional
+    public long patch(Long userId, Long id, TaskPatch patch, Long expectedVersion) {
+        if (patch.isCompletionOnly()) {
+            TaskRepository.VersionStamp stamp = taskRepository
+                    .updateCompleted(userId, id, patch.getCompleted(), LocalDateTime.now(),
+                            expectedVersion != null, expectedVersion != null ? expectedVersion : 0)
+                    .orElseThrow(() -> patchFailure(userId, id));
+            eventPublisher.publishEvent(new TaskChangeEvent(userId, stamp.getChangeVersion(), List.of(), List.of(id), List.of()));
+            return stamp.getVersion();
+        }
+
+        long version = userRepository.nextChangeVersion(userId);
+        Task task = loadOwned(userId, id);
+        if (expectedVersion != null && task.getVersion() != expectedVersion) {
+            throw new TaskVersionConflictException(id);
+        }
+        Schedule before = Schedule.of(task);
+        applyPatch(task, patch);
+        if (patch.has("taskDetail")) {
+            stamp(task, version, LocalDateTime.now());
+        } else {
+            stampTask(task, version, LocalDateTime.now());
+        }
+        try {
+            taskRepository.flush();
+        } catch (OptimisticLockingFailureException e) {
+            throw new TaskVersionConflictException(id);
+        }
+        if (!before.equals(Schedule.of(task))) {
+            indexOccurrences(userId, List.of(task), true);
+        }
+        eventPublisher.publishEvent(new TaskChangeEvent(userId, version, List.of(), List.of(id), List.of()));
+        return task.getVersion();
+    }
+
+    @Transactional
+    public void delete(Long userId, Long id) {
+        long version = userRepository.nextChangeVersion(userId);
+        Task task = loadOwned(userId, id);
+        taskRepository.delete(task);
+        tombstoneRepository.save(new TaskTombstone(userId, id, version, LocalDateTime.now()));
+        eventPublisher.publishEvent(new TaskChangeEvent(userId, version, List.of(), List.of(), List.of(id)));
+    }
+
+    /**
+     * Áp dụng danh sách operation hỗn hợp trong một transaction.
+     * Quyền sở hữu được kiểm tra bằng một query IN duy nhất; operation lỗi chỉ bị bỏ qua
+     * và báo lỗi trong kết quả của chính nó, các operation còn lại vẫn được áp dụng.
+     */
+    @Transactional
+    public List<TaskBatchResult> applyBatch(Long userId, List<TaskBatchRequest.Operation> operations) {
+        List<Long> ids = operations.stream()
+                .filter(Objects::nonNull)
+                .map(TaskBatchRequest.Operation::getId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        long version = userRepository.nextChangeVersion(userId);
+        Map<Long, Task> owned = ids.isEmpty() ? Map.of() : taskRepository.findAllByUserIdAndIdIn(userId, ids).stream()
+                .collect(Collectors.toMap(Task::getId, Function.identity()));
+        Map<Long, Task> live = new HashMap<>(owned);
+        LocalDateTime now = LocalDateTime.now();
+
+        List<TaskBatchResult> results = new ArrayList<>(operations.size());
+        List<Task> created = new ArrayList<>();
+        List<Task> deleted = new ArrayList<>();
+        Map<Long, Schedule> schedules = new HashMap<>(); // lịch trước khi update, để biết task nào cần sinh lại index
+
+        for (int i = 0; i < operations.size(); i++) {
+            TaskBatchRequest.Operation operation = operations.get(i);
+            String op = operation != null && operation.getOp() != null ? operation.getOp().trim().toLowerCase() : "";
+            Long id = operation != null ? operation.getId() : null;
+
+            if (op.equals("create")) {
+                Task task = operation.getTask();
+                if (task == null || task.getTitle() == null || task.getTitle().trim().isEmpty()) {
+                    results.add(new TaskBatchResult(i, op, null, 400, "Task title is required.", null));
+                    continue;
+                }
+                prepareNewTask(userId, task);
+                stamp(task, version, now);
+                created.add(task);
+                results.add(new TaskBatchResult(i, op, null, 201, null, task));
+                continue;
+            }
+
+            if (!op.equals("update") && !op.equals("complete") && !op.equals("uncomplete") && !op.equals("delete")) {
+                results.add(new TaskBatchResult(i, op, id, 400, "Unsupported operation: " + op, null));
+                continue;
+            }
+            // Task không tồn tại hoặc thuộc user khác đều trả 404, không lộ sự tồn tại của task
+            Task task = id != null ? live.get(id) : null;
+            if (task == null) {
+                results.add(new TaskBatchResult(i, op, id, 404, "Task not found with id: " + id, null));
+                continue;
+            }
+
+            switch (op) {
+                case "update" -> {
+                    if (operation.getTask() == null) {
+                        results.add(new TaskBatchResult(i, op, id, 400, "Task body is required.", null));
+                        continue;
+                    }
+                    schedules.putIfAbsent(id, Schedule.of(task));
+                    applyUpdate(task, operation.getTask());
+                    stamp(task, version, now);
+                    results.add(new TaskBatchResult(i, op, id, 200, null, task));
+                }
+                case "complete", "uncomplete" -> {
+                    setCompleted(task, op.equals("complete"));
+                    stampTask(task, version, now);
+                    results.add(new TaskBatchResult(i, op, id, 200, null, task));
+                }
+                default -> {
+                    live.remove(id);
+                    deleted.add(task);
+                    results.add(new TaskBatchResult(i, op, id, 204, null, null));
+                }
+            }
+        }
+
+        // Thay đổi của task đã load được flush (batch UPDATE) khi commit
+        taskRepository.saveAll(created);
+        taskRepository.deleteAll(deleted);
+        tombstoneRepository.saveAll(deleted.stream()
+                .map(task -> new TaskTombstone(userId, task.getId(), version, now))
+                .toList());
+        taskRepository.flush();
+        indexOccurrences(userId, created, false);
+        indexOccurrences(userId, schedules.entrySet().stream()
+                .filter(entry -> live.containsKey(entry.getKey()))
+                .map(entry -> live.get(entry.getKey()))
+                .filter(task -> !schedules.get(task.getId()).equals(Schedule.of(task)))
+                .toList(), true);
+
+        // id của task mới chỉ có sau khi persist
+        for (TaskBatchResult result : results) {
+            if (result.getStatus() == 201) {
+                result.setId(result.getTask().getId());
+            }
+        }
+
+        List<Long> updatedIds = results.stream()
+                .filter(result -> result.getStatus() == 200 && live.containsKey(result.getId()))
+                .map(TaskBatchResult::getId)
+                .distinct()
+                .toList();
+        eventPublisher.publishEvent(new TaskChangeEvent(userId, version, idsOf(created), updatedIds, idsOf(deleted)));
+        return results;
+    }
+
+    private Task loadOwned(Long userId, Long id) {
+        Task task = taskRepository.findById(id).orElseThrow(() -> new TaskNotFoundException(id));
+        if (!task.getUser().getId().equals(userId)) {
+            throw new TaskAccessDeniedException(id);
+        }
+        return task;
+    }
+
+    // UPDATE không khớp dòng nào (đường hiếm): tìm nguyên nhân để trả đúng 404 / 403 / xung đột version.
+    // Ném exception nên transaction rollback, kể cả change version đã tăng trong CTE
+    private RuntimeException patchFailure(Long userId, Long id) {
+        loadOwned(userId, id);
+        return new TaskVersionConflictException(id);
+    }
+
+    // Flush trước (task_occurrences có FK tới tasks) rồi ghi lại index agenda.
+    // Task mới không có due_date thì không có dòng nào để ghi
+    private void indexOccurrences(Long userId, List<Task> tasks, boolean replaceExisting) {
+        List<Task> indexed = replaceExisting ? tasks : tasks.stream().filter(task -> Schedule.of(task).dueDate() != null).toList();
+        if (indexed.isEmpty()) {
+            return;
+        }
+        taskRepository.flush();
+        occurrenceIndex.refresh(userId, indexed, replaceExisting);
+    }
+
+    // due_date + repeat quyết định các lần xảy ra của task
+    private record Schedule(LocalDateTime dueDate, String repeat) {
+        static Schedule of(Task task) {
+            TaskDetail detail = task.getTaskDetail();
+            return detail == null ? new Schedule(null, null) : new Schedule(detail.getDueDate(), detail.getRepeat());
+        }
+    }
+
+    private void prepareNewTask(Long userId, Task task) {
+        task.setId(null);
+        // gắn user hiện tại bằng reference (không SELECT bảng users)
+        task.setUser(userRepository.getReferenceById(userId));
+        task.setCompleted(false); // mặc định là chưa hoàn thành
+        task.setCompletedAt(null);
+
+        if (task.getTaskDetail() != null) {
+            task.getTaskDetail().setId(null);
+            task.getTaskDetail().setTask(task); // set quan hệ ngược
+        }
+    }
+
+    private static List<Long> idsOf(List<Task> tasks) {
+        return tasks.stream().map(Task::getId).toList();
+    }
+
+    private static void stamp(Task task, long version, LocalDateTime now) {
+        stampTask(task, version, now);
+        if (task.getTaskDetail() != null) {
+            task.getTaskDetail().setUpdatedAt(now);
+        }
+    }
+
+    // Chỉ đóng dấu task: thay đổi không đụng tới detail thì không sinh UPDATE task_details
+    private static void stampTask(Task task, long version, LocalDateTime now) {
+        task.setChangeVersion(version);
+        task.setUpdatedAt(now);
+    }
+
+    private static void setCompleted(Task task, boolean completed) {
+        if (task.isCompleted() != completed) {
+            task.setCompleted(completed);
+            task.setCompletedAt(completed ? LocalDateTime.now() : null);
+        }
+    }
+
+    private static void applyPatch(Task task, TaskPatch patch) {
+        if (patch.has("title")) {
+            task.setTitle(patch.getTitle());
+        }
+        if (patch.has("description")) {
+            task.setDescription(patch.getDescription());
+        }
+        if (patch.has("type")) {
+            task.setType(patch.getType());
+        }
+        if (patch.has("completed")) {
+            setCompleted(task, patch.getCompleted());
+        }
+        if (!patch.has("taskDetail")) {
+            return;
+        }
+
+        TaskPatch.Detail changes = patch.getTaskDetail();
+        if (changes == null) {
+            task.setTaskDetail(null); // "taskDetail": null thì xoá detail (orphanRemoval)
+            return;
+        }
+        TaskDetail detail = task.getTaskDetail();
+        if (detail == null) {
+            detail = new TaskDetail();
+            detail.setTask(task);
+            task.setTaskDetail(detail);
+        }
+        if (changes.has("dueDate")) {
+            detail.setDueDate(changes.getDueDate());
+        }
+        if (changes.has("time")) {
+            detail.setTime(changes.getTime());
+        }
+        if (changes.has("duration")) {
+            detail.setDuration(changes.getDuration());
+        }
+        if (changes.has("repeat")) {
+            detail.setRepeat(changes.getRepeat());
+        }
+        if (changes.has("priority")) {
+            detail.setPriority(changes.getPriority());
+        }
+        if (changes.has("reminder")) {
+            detail.setReminder(changes.getReminder());
+        }
+    }
+
+    private static void applyUpdate(Task task, Task updated) {
+        // Cập nhật field cơ bản
+        task.setTitle(updated.getTitle() != null ? updated.getTitle() : task.getTitle());
+        task.setDescription(updated.getDescription()); // cho phép null để clear
+        task.setType(updated.getType());               // cho phép null để clear
+
+        task.setCompleted(updated.isCompleted());
+        task.setCompletedAt(updated.isCompleted() ? LocalDateTime.now() : null);
+
+        // Cập nhật TaskDetail
+        if (updated.getTaskDetail() != null) {
+            TaskDetail detail = task.getTaskDetail();
+            if (detail == null) {
+                detail = new TaskDetail();
+                detail.setTask(task);
+                task.setTaskDetail(detail);
+            }
+
+            // merge dữ liệu, cho phép clear nếu null
+            detail.setDueDate(updated.getTaskDetail().getDueDate());
+            detail.setTime(updated.getTaskDetail().getTime());
+            detail.setDuration(updated.getTaskDetail().getDuration());
+            detail.setRepeat(updated.getTaskDetail().getRepeat());
+            detail.setPriority(updated.getTaskDetail().getPriority());
+            detail.setReminder(updated.getTaskDetail().getReminder());
+        }
+    }
+}
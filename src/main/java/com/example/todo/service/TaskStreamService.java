@@ -0,0 +1,241 @@
+package com.example.todo.service;
+
+import com.example.todo.event.TaskChangeEvent;
+import com.example.todo.event.TaskEventBroker;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Đẩy sự kiện thay đổi task tới các kết nối SSE đang mở của user.
+ *
+ * Mỗi kết nối có buffer giới hạn riêng; publisher chỉ offer vào buffer (không bao giờ block),
+ * việc ghi ra socket chạy trên pool sender và chỉ được lên lịch khi buffer có dữ liệu,
+ * nên không tốn một thread cho mỗi kết nối đang rảnh. Buffer đầy thì áp dụng overflow policy:
+ * DROP_OLDEST bỏ sự kiện cũ nhất và gửi "resync" để client gọi lại /api/tasks/changes,
+ * DISCONNECT đóng kết nối để client tự kết nối lại.
+ */
+@Service
+public class TaskStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskStreamService.class);
+
+    public enum OverflowPolicy { DROP_OLDEST, DISCONNECT }
+
+    private static final Object HEARTBEAT = new Object();
+
+    private final TaskEventBroker broker;
+    private final int bufferSize;
+    private final int maxPerUser;
+    private final long timeoutMillis;
+    private final OverflowPolicy overflowPolicy;
+
+    private final ExecutorService senders;
+    private final ScheduledExecutorService heartbeats;
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private final AtomicInteger openStreams = new AtomicInteger();
+    private final AtomicLong droppedEvents = new AtomicLong();
+
+    public TaskStreamService(TaskEventBroker broker,
+                             @Value("${app.tasks.stream.buffer-size:64}") int bufferSize,
+                             @Value("${app.tasks.stream.max-per-user:8}") int maxPerUser,
+                             @Value("${app.tasks.stream.timeout:30m}") Duration timeout,
+                             @Value("${app.tasks.stream.heartbeat:25s}") Duration heartbeat,
+                             @Value("${app.tasks.stream.overflow:drop-oldest}") OverflowPolicy overflowPolicy,
+                             @Value("${app.tasks.stream.sender-threads:8}") int senderThreads) {
+        this.broker = broker;
+        this.bufferSize = bufferSize;
+        this.maxPerUser = maxPerUser;
+        this.timeoutMillis = timeout.toMillis();
+        this.overflowPolicy = overflowPolicy;
+
+        AtomicInteger threadIds = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "task-sse-" + threadIds.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-sse-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long heartbeatMillis = heartbeat.toMillis();
+        this.heartbeats.scheduleAtFixedRate(this::sendHeartbeats, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Mở một kết nối SSE mới cho user; vượt quá giới hạn thì đóng kết nối cũ nhất của user đó
+    public SseEmitter open(Long userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(userId, emitter);
+
+        Set<Subscriber> userSubscribers = subscribers.compute(userId, (id, set) -> {
+            Set<Subscriber> target = set != null ? set : ConcurrentHashMap.newKeySet();
+            target.add(subscriber);
+            return target;
+        });
+        openStreams.incrementAndGet();
+        if (userSubscribers.size() > maxPerUser) {
+            userSubscribers.stream()
+                    .filter(s -> s != subscriber)
+                    .min(Comparator.comparingLong(s -> s.openedAt))
+                    .ifPresent(Subscriber::close);
+        }
+
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        subscriber.registration = broker.subscribe(userId, subscriber::offer);
+        if (subscriber.closed.get()) {
+            subscriber.registration.close();
+        }
+
+        try {
+            emitter.send(SseEmitter.event().comment("connected").reconnectTime(3000));
+        } catch (IOException e) {
+            subscriber.close();
+        }
+        return emitter;
+    }
+
+    public int getOpenStreams() {
+        return openStreams.get();
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    private void sendHeartbeats() {
+        subscribers.values().forEach(set -> set.forEach(subscriber -> subscriber.enqueue(HEARTBEAT, false)));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeats.shutdownNow();
+        subscribers.values().forEach(set -> set.forEach(Subscriber::close));
+        senders.shutdown();
+    }
+
+    private final class Subscriber {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final long openedAt = System.nanoTime();
+        private final ArrayBlockingQueue<Object> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean overflowed = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile TaskEventBroker.Subscription registration;
+
+        private Subscriber(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        void offer(TaskChangeEvent event) {
+            enqueue(event, true);
+        }
+
+        void enqueue(Object item, boolean mustDeliver) {
+            if (closed.get()) {
+                return;
+            }
+            if (!buffer.offer(item)) {
+                if (!mustDeliver) {
+                    return; // heartbeat khi buffer đầy thì bỏ qua
+                }
+                droppedEvents.incrementAndGet();
+                if (overflowPolicy == OverflowPolicy.DISCONNECT) {
+                    close();
+                    return;
+                }
+                buffer.poll();
+                overflowed.set(true);
+                buffer.offer(item);
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                    close();
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                do {
+                    if (overflowed.getAndSet(false)) {
+                        emitter.send(SseEmitter.event().name("resync").data("{}"));
+                    }
+                    Object item;
+                    while (!closed.get() && (item = buffer.poll()) != null) {
+                        if (item == HEARTBEAT) {
+                            emitter.send(SseEmitter.event().comment("ping"));
+                        } else {
+                            TaskChangeEvent event = (TaskChangeEvent) item;
+                            emitter.send(SseEmitter.event()
+                                    .id(Long.toString(event.version()))
+                                    .name("tasks-changed")
+                                    .data(event));
+                        }
+                    }
+                    scheduled.set(false);
+                } while (!closed.get() && !buffer.isEmpty() && scheduled.compareAndSet(false, true));
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("Task stream for user {} closed: {}", userId, e.getMessage());
+                scheduled.set(false);
+                close();
+            }
+        }
+
+        void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            openStreams.decrementAndGet();
+            if (registration != null) {
+                registration.close();
+            }
+            subscribers.computeIfPresent(userId, (id, set) -> {
+                set.remove(this);
+                return set.isEmpty() ? null : set;
+            });
+            buffer.clear();
+            try {
+                emitter.complete();
+            } catch (IllegalStateException ignored) {
+                // emitter đã hoàn tất trước đó
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.todo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Xoá tombstone cũ hơn app.tasks.tombstones.retention. Mỗi lần xoá nâng users.tombstones_purged_through lên
+ * change_version lớn nhất đã xoá của user đó, để /api/tasks/changes biết "since" nào không còn đủ tombstone
+ * và trả resyncRequired thay vì bỏ sót lần xoá.
+ */
+@Service
+public class TaskTombstoneCleanupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskTombstoneCleanupService.class);
+    private static final int BATCH_SIZE = 5000;
+
+    // Một câu (một transaction) cho mỗi lô: xoá tombstone và nâng mốc của các user liên quan cùng lúc
+    private static final String PURGE_SQL = """
+            WITH purged AS (
+                DELETE FROM todo_schema.task_tombstones
+                WHERE id IN (SELECT id FROM todo_schema.task_tombstones WHERE deleted_at < ? ORDER BY deleted_at LIMIT ?)
+                RETURNING user_id, change_version
+            ), marks AS (
+                UPDATE todo_schema.users u SET tombstones_purged_through = p.change_version
+                FROM (SELECT user_id, max(change_version) AS change_version FROM purged GROUP BY user_id) p
+                WHERE u.id = p.user_id AND u.tombstones_purged_through < p.change_version
+                RETURNING u.id
+            )
+            SELECT count(*) FROM purged""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration retention;
+    private final DbTimestamps timestamps;
+    private final Timer cleanupTimer;
+    private final Counter deletedTombstones;
+    private final Counter failedRuns;
+
+    public TaskTombstoneCleanupService(JdbcTemplate jdbcTemplate,
+                                       @Value("${app.tasks.tombstones.retention:30d}") Duration retention,
+                                       @Value("${spring.jpa.properties.hibernate.jdbc.time_zone:}") String jdbcTimeZone,
+                                       MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.retention = retention;
+        this.timestamps = new DbTimestamps(jdbcTimeZone);
+        this.cleanupTimer = Timer.builder("tasks.tombstones.cleanup").description("Task tombstone purge duration").register(meterRegistry);
+        this.deletedTombstones = Counter.builder("tasks.tombstones.cleanup.deleted").description("Task tombstones purged").register(meterRegistry);
+        this.failedRuns = Counter.builder("tasks.tombstones.cleanup.failures").description("Failed task tombstone purges").register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${app.tasks.tombstones.cleanup-cron:0 20 0 * * *}")
+    public void purgeExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        Timer.Sample sample = Timer.start();
+        long total = 0;
+        try {
+            long deleted;
+            do {
+                deleted = jdbcTemplate.queryForObject(PURGE_SQL, Long.class, timestamps.toDb(cutoff), BATCH_SIZE);
+                deletedTombstones.increment(deleted);
+                total += deleted;
+            } while (deleted == BATCH_SIZE);
+            if (total > 0) {
+                logger.info("Purged {} task tombstones deleted before {}", total, cutoff);
+            }
+        } catch (Exception e) {
+            failedRuns.increment();
+            logger.error("Task tombstone purge failed after {} rows: {}", total, e.getMessage(), e);
+        } finally {
+            sample.stop(cleanupTimer);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.todo.service;
+
+public class TaskVersionConflictException extends RuntimeException {
+    public TaskVersionConflictException(Long id) {
+        super("Task " + id + " was modified by another request");
+    }
+}
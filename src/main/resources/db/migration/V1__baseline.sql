@@ -0,0 +1,134 @@
+-- Baseline: toàn bộ schema trước khi chuyển sang Flyway (trước đây là schema.sql chạy mỗi lần khởi động).
+-- DB cũ do schema.sql tạo (chưa có bảng lịch sử) được baseline ở version 0 (spring.flyway.baseline-on-migrate) nên file này
+-- vẫn chạy trên đó: mọi câu đều IF NOT EXISTS / IF EXISTS và bổ sung cột, bảng, index, sequence mà DB cũ còn thiếu.
+-- KHÔNG sửa file này; thay đổi schema viết migration mới V{n}__*.sql.
+
+-- Tạo schema nếu chưa tồn tại
+CREATE SCHEMA IF NOT EXISTS todo_schema;
+
+-- ===========================
+-- BẢNG NGƯỜI DÙNG & OTP
+-- ===========================
+
+-- Bảng users
+CREATE TABLE IF NOT EXISTS todo_schema.users (
+    id SERIAL PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL UNIQUE,
+    password VARCHAR(255) NOT NULL,
+    avatar VARCHAR(500)          -- có thể null, lưu URL hoặc base64
+);
+
+-- Bảng otps (tham chiếu email người dùng)
+CREATE TABLE IF NOT EXISTS todo_schema.otps (
+    id SERIAL PRIMARY KEY,
+    email VARCHAR(255) NOT NULL,
+    otp_code VARCHAR(6) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL,
+    FOREIGN KEY (email) REFERENCES todo_schema.users(email) ON DELETE CASCADE
+);
+
+-- ===========================
+-- BẢNG TASK & TASK_DETAILS
+-- ===========================
+
+-- Bảng chính: tasks
+CREATE TABLE IF NOT EXISTS todo_schema.tasks (
+    id SERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,              -- 🔹 liên kết user
+    completed BOOLEAN DEFAULT FALSE,
+    title VARCHAR(255) NOT NULL,
+    description TEXT,                     -- thay cho note
+    type VARCHAR(255),                    -- thay cho project
+    completed_at TIMESTAMP,               -- thời điểm hoàn thành
+    CONSTRAINT fk_task_user FOREIGN KEY (user_id)
+        REFERENCES todo_schema.users(id)
+        ON DELETE CASCADE                 -- nếu user bị xoá thì xoá luôn task
+);
+
+-- Bảng phụ: task_details
+CREATE TABLE IF NOT EXISTS todo_schema.task_details (
+    id SERIAL PRIMARY KEY,
+    task_id BIGINT NOT NULL,
+    due_date TIMESTAMP,          -- ngày đến hạn
+    time TIMESTAMP,              -- giờ cụ thể
+    duration VARCHAR(50),        -- thời lượng ("30m", "1h", "none")
+    repeat VARCHAR(50),          -- lặp lại ("daily", "weekly", "monthly", "none")
+    priority INTEGER,            -- mức ưu tiên (1=High, 2=Medium, 3=Low, 4=None)
+    reminder INTEGER,            -- số phút trước sự kiện
+    CONSTRAINT fk_task_detail_task FOREIGN KEY (task_id)
+        REFERENCES todo_schema.tasks(id)
+        ON DELETE CASCADE
+);
+
+-- ===========================
+-- INDEX CHO DANH SÁCH TASK PHÂN TRANG (keyset)
+-- ===========================
+CREATE INDEX IF NOT EXISTS idx_tasks_user_id_id
+    ON todo_schema.tasks (user_id, id);
+CREATE INDEX IF NOT EXISTS idx_tasks_user_completed_at
+    ON todo_schema.tasks (user_id, completed_at DESC, id DESC)
+    WHERE completed_at IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_task_details_task_id
+    ON todo_schema.task_details (task_id);
+CREATE INDEX IF NOT EXISTS idx_task_details_due_date_task_id
+    ON todo_schema.task_details (due_date, task_id)
+    WHERE due_date IS NOT NULL;
+
+-- ===========================
+-- SEQUENCE CHO POOLED ID GENERATOR
+-- ===========================
+-- Entity dùng @SequenceGenerator(allocationSize = 50) nên INCREMENT BY phải khớp 50.
+-- Các sequence này do SERIAL tạo sẵn; ALTER lại idempotent nên chạy mỗi lần khởi động vẫn an toàn.
+ALTER SEQUENCE IF EXISTS todo_schema.users_id_seq INCREMENT BY 50;
+ALTER SEQUENCE IF EXISTS todo_schema.otps_id_seq INCREMENT BY 50;
+ALTER SEQUENCE IF EXISTS todo_schema.tasks_id_seq INCREMENT BY 50;
+ALTER SEQUENCE IF EXISTS todo_schema.task_details_id_seq INCREMENT BY 50;
+
+-- ===========================
+-- DELTA SYNC: PHIÊN BẢN THAY ĐỔI + TOMBSTONE
+-- ===========================
+-- users.change_version tăng mỗi lần user ghi task; task mang version của lần ghi cuối cùng
+ALTER TABLE todo_schema.users ADD COLUMN IF NOT EXISTS change_version BIGINT NOT NULL DEFAULT 1;
+ALTER TABLE todo_schema.tasks ADD COLUMN IF NOT EXISTS change_version BIGINT NOT NULL DEFAULT 1;
+ALTER TABLE todo_schema.tasks ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP;
+ALTER TABLE todo_schema.task_details ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP;
+
+CREATE TABLE IF NOT EXISTS todo_schema.task_tombstones (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    task_id BIGINT NOT NULL,
+    change_version BIGINT NOT NULL,
+    deleted_at TIMESTAMP NOT NULL,
+    CONSTRAINT fk_task_tombstone_user FOREIGN KEY (user_id)
+        REFERENCES todo_schema.users(id)
+        ON DELETE CASCADE
+);
+ALTER SEQUENCE IF EXISTS todo_schema.task_tombstones_id_seq INCREMENT BY 50;
+
+CREATE INDEX IF NOT EXISTS idx_tasks_user_change_version
+    ON todo_schema.tasks (user_id, change_version);
+CREATE INDEX IF NOT EXISTS idx_task_tombstones_user_change_version
+    ON todo_schema.task_tombstones (user_id, change_version);
+
+-- ===========================
+-- MAIL OUTBOX
+-- ===========================
+-- Mail được ghi cùng transaction với nghiệp vụ, job nền gửi sau (gửi xong thì xoá dòng)
+CREATE TABLE IF NOT EXISTS todo_schema.mail_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    recipient VARCHAR(255) NOT NULL,
+    subject VARCHAR(255) NOT NULL,
+    body TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING', -- PENDING | FAILED
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL,
+    last_error TEXT,
+    created_at TIMESTAMP NOT NULL
+);
+ALTER SEQUENCE IF EXISTS todo_schema.mail_outbox_id_seq INCREMENT BY 50;
+
+CREATE INDEX IF NOT EXISTS idx_mail_outbox_pending_next_attempt
+    ON todo_schema.mail_outbox (next_attempt_at)
+    WHERE status = 'PENDING';
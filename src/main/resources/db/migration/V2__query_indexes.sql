@@ -0,0 +1,38 @@
+-- Index khớp với các query thực tế của TaskRepository / TaskSpecifications, OtpRepository và job dọn OTP.
+-- CONCURRENTLY để không khoá ghi trên bảng lớn (script chạy ngoài transaction, xem file .conf cùng tên).
+-- Build CONCURRENTLY thất bại để lại index INVALID mà IF NOT EXISTS sẽ bỏ qua, nên mỗi index được DROP trước:
+-- chạy lại migration sau lỗi sẽ dựng lại sạch.
+
+-- ===========================
+-- OTP
+-- ===========================
+-- verify-otp: findByEmailAndOtpCode; reset-password: deleteByEmail (dùng cột đầu của index);
+-- xoá user cascade sang otps theo email cũng dùng index này
+DROP INDEX CONCURRENTLY IF EXISTS todo_schema.idx_otps_email_otp_code;
+CREATE INDEX CONCURRENTLY idx_otps_email_otp_code
+    ON todo_schema.otps (email, otp_code);
+
+-- Job dọn OTP: DELETE ... WHERE expires_at < :now
+DROP INDEX CONCURRENTLY IF EXISTS todo_schema.idx_otps_expires_at;
+CREATE INDEX CONCURRENTLY idx_otps_expires_at
+    ON todo_schema.otps (expires_at);
+
+-- ===========================
+-- TASKS
+-- ===========================
+-- /api/tasks/page?completed=true|false sort=id: lọc theo user + completed rồi keyset theo id.
+-- Không dùng partial index WHERE completed = false vì completed là tham số bind, plan generic không dùng được.
+DROP INDEX CONCURRENTLY IF EXISTS todo_schema.idx_tasks_user_completed_id;
+CREATE INDEX CONCURRENTLY idx_tasks_user_completed_id
+    ON todo_schema.tasks (user_id, completed, id);
+
+-- ===========================
+-- TASK_DETAILS
+-- ===========================
+-- Join task -> detail theo task_id; INCLUDE các cột lọc/sort (priority, due_date) để lọc trang
+-- không phải đọc heap của task_details. Thay cho idx_task_details_task_id.
+DROP INDEX CONCURRENTLY IF EXISTS todo_schema.idx_task_details_task_id_covering;
+CREATE INDEX CONCURRENTLY idx_task_details_task_id_covering
+    ON todo_schema.task_details (task_id) INCLUDE (due_date, priority);
+
+DROP INDEX CONCURRENTLY IF EXISTS todo_schema.idx_task_details_task_id;
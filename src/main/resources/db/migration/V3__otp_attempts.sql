@@ -0,0 +1,2 @@
+-- Đếm số lần nhập sai OTP (JpaOtpStore), quá app.otp.max-attempts thì OTP bị huỷ
+ALTER TABLE todo_schema.otps ADD COLUMN IF NOT EXISTS attempts INT NOT NULL DEFAULT 0;
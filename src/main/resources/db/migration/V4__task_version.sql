@@ -0,0 +1,3 @@
+-- Version cho optimistic locking (Task @Version, ETag/If-Match của PATCH /api/tasks/{id}).
+-- DEFAULT hằng số nên PostgreSQL 11+ chỉ sửa catalog, không rewrite bảng tasks
+ALTER TABLE todo_schema.tasks ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,46 @@
+-- Index các lần xảy ra của task có due_date (GET /api/tasks/agenda), do TaskOccurrenceIndex duy trì:
+-- task một lần: đúng một dòng tại due_date; task lặp (task_details.repeat): mọi lần lặp trong cửa sổ
+-- [covered_from, covered_to) của task_occurrence_window, job hằng ngày nới cửa sổ và xoá dòng cũ.
+CREATE TABLE IF NOT EXISTS todo_schema.task_occurrences (
+    task_id BIGINT NOT NULL,
+    occurs_at TIMESTAMP NOT NULL,
+    user_id BIGINT NOT NULL,
+    recurring BOOLEAN NOT NULL,
+    PRIMARY KEY (task_id, occurs_at),
+    CONSTRAINT fk_task_occurrence_task FOREIGN KEY (task_id)
+        REFERENCES todo_schema.tasks(id)
+        ON DELETE CASCADE
+);
+
+-- Agenda: quét theo khoảng thời gian của một user
+CREATE INDEX IF NOT EXISTS idx_task_occurrences_user_occurs_at
+    ON todo_schema.task_occurrences (user_id, occurs_at, task_id);
+
+-- Job dọn: xoá lần lặp đã ra khỏi cửa sổ
+CREATE INDEX IF NOT EXISTS idx_task_occurrences_recurring_occurs_at
+    ON todo_schema.task_occurrences (occurs_at)
+    WHERE recurring;
+
+-- Một dòng duy nhất: khoảng thời gian mà mọi lần lặp đều đã có trong task_occurrences.
+-- extending_to: mốc job đang sinh tới (sinh theo nhóm user, ngoài khoá cửa sổ); trong lúc đó ghi task sinh lần lặp
+-- tới max(covered_to, extending_to). NULL = không có lần nới nào đang chạy.
+CREATE TABLE IF NOT EXISTS todo_schema.task_occurrence_window (
+    id SMALLINT PRIMARY KEY CHECK (id = 1),
+    covered_from TIMESTAMP NOT NULL,
+    covered_to TIMESTAMP NOT NULL,
+    extending_to TIMESTAMP
+);
+
+-- Cửa sổ ban đầu rỗng; TaskOccurrenceIndex.extendWindow() sinh lần lặp khi app khởi động
+INSERT INTO todo_schema.task_occurrence_window (id, covered_from, covered_to)
+VALUES (1, date_trunc('day', LOCALTIMESTAMP), date_trunc('day', LOCALTIMESTAMP))
+ON CONFLICT (id) DO NOTHING;
+
+-- Backfill task một lần (repeat không phải luật lặp nào của RecurrenceRule)
+INSERT INTO todo_schema.task_occurrences (task_id, occurs_at, user_id, recurring)
+SELECT t.id, d.due_date, t.user_id, FALSE
+FROM todo_schema.tasks t
+JOIN todo_schema.task_details d ON d.task_id = t.id
+WHERE d.due_date IS NOT NULL
+  AND (d.repeat IS NULL OR lower(trim(d.repeat)) NOT IN ('daily', 'weekly', 'monthly', 'yearly'))
+ON CONFLICT DO NOTHING;
@@ -0,0 +1,3 @@
+-- Thời điểm thu hồi mọi JWT của user (đổi mật khẩu): token phát hành tới lúc này bị từ chối khi kiểm tra bằng DB
+-- (principal-revalidation=database, hoặc token mà AccountRevocationCache không còn kết luận được). NULL = chưa thu hồi
+ALTER TABLE todo_schema.users ADD COLUMN IF NOT EXISTS tokens_revoked_at TIMESTAMP;
@@ -0,0 +1,9 @@
+-- Tombstone chỉ giữ trong app.tasks.tombstones.retention (TaskTombstoneCleanupService).
+-- users.tombstones_purged_through: change_version lớn nhất của tombstone đã bị xoá; client sync với since nhỏ hơn
+-- mốc này có thể đã lỡ lần xoá nên /api/tasks/changes trả resyncRequired. DEFAULT hằng số: chỉ sửa catalog
+ALTER TABLE todo_schema.users ADD COLUMN IF NOT EXISTS tombstones_purged_through BIGINT NOT NULL DEFAULT 0;
+
+-- Job dọn: DELETE ... WHERE deleted_at < :cutoff (CONCURRENTLY, script chạy ngoài transaction, xem file .conf)
+DROP INDEX CONCURRENTLY IF EXISTS todo_schema.idx_task_tombstones_deleted_at;
+CREATE INDEX CONCURRENTLY idx_task_tombstones_deleted_at
+    ON todo_schema.task_tombstones (deleted_at);
@@ -0,0 +1,304 @@
+package com.example.todo.repository;
+
+import com.example.todo.controller.TaskController;
+import com.example.todo.dto.TaskCursor;
+import com.example.todo.dto.TaskPageResponse;
+import com.example.todo.dto.TaskPatch;
+import com.example.todo.dto.TaskView;
+import com.example.todo.model.Task;
+import com.example.todo.security.AuthenticatedUser;
+import com.example.todo.service.MailOutboxService;
+import com.example.todo.service.OtpCleanupService;
+import com.example.todo.service.TaskQueryService;
+import com.example.todo.service.TaskService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Các query danh sách task phải lấy task kèm task_details trong đúng một câu SQL, không phụ thuộc số task
+ * (taskDetail là phía mappedBy của @OneToOne nên thiếu JOIN FETCH là N+1). Đếm bằng Hibernate statistics
+ * trên Postgres nhúng; các job nền có chạy query JPA được thay bằng mock để không lẫn vào số đếm.
+ * PATCH chỉ đổi completed cũng phải là một câu (CTE lấy change version + UPDATE task), kèm các nhánh lỗi của nó.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN",
+        "management.server.port=-1",
+        "app.jwt.secret=c2VjcmV0LXNlY3JldC1zZWNyZXQtc2VjcmV0LXNlY3JldC1zZWNyZXQtc2VjcmV0",
+        "google.client-id=test",
+        "google.client-secret=test",
+        "google.certs-url=http://127.0.0.1:9/certs",
+        "spring.mail.username=test",
+        "spring.mail.password=test"
+})
+class TaskListStatementCountTest {
+
+    private static final int TASKS = 30;
+
+    private static EmbeddedPostgres postgres;
+
+    @MockitoBean
+    private MailOutboxService mailOutboxService;
+
+    @MockitoBean
+    private OtpCleanupService otpCleanupService;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private TaskQueryService taskQueryService;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private TaskController taskController;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long userId;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws IOException, SQLException {
+        postgres = EmbeddedPostgres.builder().start();
+        try (Connection connection = postgres.getPostgresDatabase().getConnection()) {
+            connection.createStatement().execute("CREATE DATABASE todolistdb");
+        }
+        registry.add("spring.datasource.url", () -> "jdbc:postgresql://localhost:" + postgres.getPort() + "/todolistdb");
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+    }
+
+    @AfterAll
+    static void stopDatabase() throws IOException {
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    // Mỗi test một user mới: TASKS task, 2/3 có task_details (đủ cả task có và không có detail cho LEFT JOIN),
+    // một nửa đã hoàn thành để sort completedAt cũng có dữ liệu
+    @BeforeEach
+    void seed() {
+        userId = jdbcTemplate.queryForObject(
+                "INSERT INTO todo_schema.users (name, email, password) VALUES ('Count', ?, 'x') RETURNING id",
+                Long.class, "count-" + System.nanoTime() + "@example.com");
+        for (int i = 0; i < TASKS; i++) {
+            Long taskId = jdbcTemplate.queryForObject("""
+                            INSERT INTO todo_schema.tasks (user_id, title, completed, completed_at)
+                            VALUES (?, ?, ?, CASE WHEN ? THEN LOCALTIMESTAMP - make_interval(hours => ?) END)
+                            RETURNING id""",
+                    Long.class, userId, "task " + i, i % 2 == 0, i % 2 == 0, i);
+            if (i % 3 != 0) {
+                jdbcTemplate.update("""
+                                INSERT INTO todo_schema.task_details (task_id, due_date, duration, repeat, priority)
+                                VALUES (?, LOCALTIMESTAMP + make_interval(days => ?), '30m', 'none', ?)""",
+                        taskId, i, 1 + i % 4);
+            }
+        }
+    }
+
+    @Test
+    void findByUserIdLoadsDetailsInOneStatement() {
+        List<Task> tasks = countingStatements(() -> {
+            List<Task> result = taskRepository.findByUserId(userId);
+            result.forEach(task -> touch(task));
+            return result;
+        });
+
+        assertThat(tasks).hasSize(TASKS);
+        assertThat(tasks).filteredOn(task -> task.getTaskDetail() != null).hasSize(TASKS * 2 / 3);
+    }
+
+    @Test
+    void findViewsByUserIdLoadsDetailsInOneStatement() {
+        List<TaskView> views = countingStatements(() -> taskRepository.findViewsByUserId(userId));
+
+        assertThat(views).hasSize(TASKS);
+        assertThat(views).filteredOn(view -> view.taskDetail() != null).hasSize(TASKS * 2 / 3);
+    }
+
+    @ParameterizedTest
+    @EnumSource(TaskCursor.Sort.class)
+    void findPageLoadsDetailsInOneStatement(TaskCursor.Sort sort) {
+        TaskPageResponse page = countingStatements(() -> {
+            TaskPageResponse result = taskQueryService.findPage(userId, sort, null, TASKS, null, null, null, null, null);
+            result.getItems().forEach(task -> touch(task));
+            return result;
+        });
+
+        assertThat(page.getItems()).isNotEmpty();
+    }
+
+    @Test
+    void completionToggleIsOneStatementAndKeepsCompletedAt() {
+        Long taskId = taskId(1); // task lẻ: chưa hoàn thành
+        Map<String, Object> before = taskRow(taskId);
+
+        long version = countingStatements(() -> taskService.patch(userId, taskId, completion(true), null));
+        Map<String, Object> completed = taskRow(taskId);
+        assertThat(version).isEqualTo((Long) before.get("version") + 1);
+        assertThat(completed.get("completed")).isEqualTo(true);
+        assertThat(completed.get("completed_at")).isNotNull();
+        assertThat(completed.get("change_version")).isEqualTo(userChangeVersion());
+
+        // Gửi lại cùng giá trị: completed_at giữ nguyên, version vẫn tăng
+        countingStatements(() -> taskService.patch(userId, taskId, completion(true), version));
+        Map<String, Object> again = taskRow(taskId);
+        assertThat(again.get("completed_at")).isEqualTo(completed.get("completed_at"));
+        assertThat(again.get("version")).isEqualTo(version + 1);
+
+        countingStatements(() -> taskService.patch(userId, taskId, completion(false), null));
+        Map<String, Object> reopened = taskRow(taskId);
+        assertThat(reopened.get("completed")).isEqualTo(false);
+        assertThat(reopened.get("completed_at")).isNull();
+    }
+
+    // Câu UPDATE không khớp dòng nào → patchFailure tìm nguyên nhân; change version đã tăng trong CTE phải bị rollback
+    @Test
+    void completionToggleFailuresRollBackAndMapToStatus() {
+        Long taskId = taskId(1);
+        long version = (Long) taskRow(taskId).get("version");
+        Long otherUserId = jdbcTemplate.queryForObject(
+                "INSERT INTO todo_schema.users (name, email, password) VALUES ('Other', ?, 'x') RETURNING id",
+                Long.class, "other-" + System.nanoTime() + "@example.com");
+        Long foreignTaskId = jdbcTemplate.queryForObject(
+                "INSERT INTO todo_schema.tasks (user_id, title) VALUES (?, 'foreign') RETURNING id", Long.class, otherUserId);
+        long changeVersion = userChangeVersion();
+
+        assertThat(patch(taskId, completion(true), "\"" + (version - 1) + "\"").getStatusCode())
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        assertThat(patch(Long.MAX_VALUE, completion(true), null).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        // Task của user khác: 403 như PUT/DELETE
+        assertThat(patch(foreignTaskId, completion(true), null).getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+
+        assertThat(userChangeVersion()).isEqualTo(changeVersion);
+        assertThat(taskRow(taskId).get("version")).isEqualTo(version);
+        assertThat(taskRow(taskId).get("completed")).isEqualTo(false);
+
+        assertThat(patch(taskId, completion(true), "\"" + version + "\"").getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+    }
+
+    /**
+     * Ghi xen giữa không qua khoá dòng user (giữ khoá dòng task cho tới khi PATCH đã chờ trên nó):
+     * có If-Match thì điều kiện sai → 412, không có thì @Version chặn ghi đè → 409.
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void concurrentWriteMapsTo412WithIfMatchAnd409Without(boolean withIfMatch) throws Exception {
+        Long taskId = taskId(1);
+        long version = (Long) taskRow(taskId).get("version");
+        TaskPatch rename = new TaskPatch();
+        rename.setTitle("renamed");
+
+        ResponseEntity<?> response;
+        try (Connection writer = jdbcTemplate.getDataSource().getConnection()) {
+            writer.setAutoCommit(false);
+            try (PreparedStatement update = writer.prepareStatement(
+                    "UPDATE todo_schema.tasks SET title = 'other device', version = version + 1 WHERE id = ?")) {
+                update.setLong(1, taskId);
+                update.executeUpdate();
+            }
+            CompletableFuture<ResponseEntity<?>> pending = CompletableFuture.supplyAsync(
+                    () -> patch(taskId, rename, withIfMatch ? "\"" + version + "\"" : null));
+            awaitLockWait();
+            writer.commit();
+            response = pending.get(10, TimeUnit.SECONDS);
+        }
+
+        assertThat(response.getStatusCode())
+                .isEqualTo(withIfMatch ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT);
+        assertThat(taskRow(taskId).get("title")).isEqualTo("other device");
+    }
+
+    // Chạy trong một transaction để truy cập lazy (nếu có) còn session, rồi kiểm tra đúng một câu SQL
+    private <T> T countingStatements(Supplier<T> query) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        T result = new TransactionTemplate(transactionManager).execute(status -> query.get());
+        assertThat(statistics.getPrepareStatementCount())
+                .as("SQL statements prepared")
+                .isEqualTo(1);
+        return result;
+    }
+
+    private ResponseEntity<?> patch(Long taskId, TaskPatch patch, String ifMatch) {
+        return taskController.patchTask(taskId, patch, ifMatch, new AuthenticatedUser(userId, "count@example.com"));
+    }
+
+    private Long taskId(int index) {
+        return jdbcTemplate.queryForObject(
+                "SELECT id FROM todo_schema.tasks WHERE user_id = ? ORDER BY id OFFSET ? LIMIT 1", Long.class, userId, index);
+    }
+
+    private Map<String, Object> taskRow(Long taskId) {
+        return jdbcTemplate.queryForMap(
+                "SELECT title, completed, completed_at, version, change_version FROM todo_schema.tasks WHERE id = ?", taskId);
+    }
+
+    private long userChangeVersion() {
+        return jdbcTemplate.queryForObject("SELECT change_version FROM todo_schema.users WHERE id = ?", Long.class, userId);
+    }
+
+    // Chờ tới khi có backend đang đợi khoá dòng (PATCH đã tới câu UPDATE task)
+    private void awaitLockWait() throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM pg_stat_activity WHERE wait_event_type = 'Lock' AND datname = current_database()",
+                Long.class) == 0) {
+            assertThat(System.nanoTime()).as("PATCH waiting on the task row lock").isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    private static TaskPatch completion(boolean completed) {
+        TaskPatch patch = new TaskPatch();
+        patch.setCompleted(completed);
+        return patch;
+    }
+
+    private static void touch(Task task) {
+        if (task.getTaskDetail() != null) {
+            task.getTaskDetail().getDueDate();
+        }
+    }
+}
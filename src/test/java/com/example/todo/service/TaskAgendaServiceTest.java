@@ -0,0 +1,244 @@
+package com.example.todo.service;
+
+import com.example.todo.dto.TaskAgendaEntry;
+import com.example.todo.model.Task;
+import com.example.todo.model.TaskDetail;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Index lần lặp ({@link TaskOccurrenceIndex}) và agenda ({@link TaskAgendaService}) trên Postgres nhúng.
+ * Mỗi test tự đặt cửa sổ task_occurrence_window (sau khi lần bắt kịp lúc khởi động đã xong) và dùng user riêng.
+ * Thời điểm đọc/ghi bằng JDBC đi qua {@link DbTimestamps} như code thật, vì JVM và DB có thể khác múi giờ.
+ */
+@SpringBootTest(properties = {
+        "management.server.port=-1",
+        "app.jwt.secret=c2VjcmV0LXNlY3JldC1zZWNyZXQtc2VjcmV0LXNlY3JldC1zZWNyZXQtc2VjcmV0",
+        "google.client-id=test",
+        "google.client-secret=test",
+        "google.certs-url=http://127.0.0.1:9/certs",
+        "spring.mail.username=test",
+        "spring.mail.password=test"
+})
+class TaskAgendaServiceTest {
+
+    private static EmbeddedPostgres postgres;
+    private static boolean startupCaughtUp;
+
+    @MockitoBean
+    private MailOutboxService mailOutboxService;
+
+    @MockitoBean
+    private OtpCleanupService otpCleanupService;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private TaskAgendaService taskAgendaService;
+
+    @Autowired
+    private TaskOccurrenceIndex occurrenceIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.time_zone:}")
+    private String jdbcTimeZone;
+
+    @Value("${app.tasks.agenda.horizon:90d}")
+    private Duration horizon;
+
+    private DbTimestamps timestamps;
+    private Long userId;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws IOException, SQLException {
+        postgres = EmbeddedPostgres.builder().start();
+        try (Connection connection = postgres.getPostgresDatabase().getConnection()) {
+            connection.createStatement().execute("CREATE DATABASE todolistdb");
+        }
+        registry.add("spring.datasource.url", () -> "jdbc:postgresql://localhost:" + postgres.getPort() + "/todolistdb");
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+    }
+
+    @AfterAll
+    static void stopDatabase() throws IOException {
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        timestamps = new DbTimestamps(jdbcTimeZone);
+        awaitStartupCatchUp();
+        userId = jdbcTemplate.queryForObject(
+                "INSERT INTO todo_schema.users (name, email, password) VALUES ('Agenda', ?, 'x') RETURNING id",
+                Long.class, "agenda-" + System.nanoTime() + "@example.com");
+    }
+
+    // Lặp hằng tháng từ ngày 31: mỗi lần tính từ mốc nên kẹp về cuối tháng ngắn rồi trở lại ngày 31
+    @Test
+    void monthlyFromThe31stIsIndexedAtEachMonthEnd() {
+        setWindow(at(2031, 1, 1, 0), at(2031, 7, 1, 0), null);
+
+        Task task = taskService.create(userId, task("rent", at(2031, 1, 31, 9), "monthly"));
+
+        assertThat(indexed(task.getId())).containsExactly(
+                at(2031, 1, 31, 9), at(2031, 2, 28, 9), at(2031, 3, 31, 9),
+                at(2031, 4, 30, 9), at(2031, 5, 31, 9), at(2031, 6, 30, 9));
+    }
+
+    /**
+     * Khoảng agenda vượt cả covered_from lẫn covered_to: phần trong cửa sổ lấy từ index, hai đầu sinh lười.
+     * Dòng lặp còn sót ngoài cửa sổ (chờ xoá / đang sinh dở) không được làm lặp entry; task một lần ngoài cửa sổ vẫn có.
+     */
+    @Test
+    void agendaAcrossBothWindowEdgesHasEveryOccurrenceOnce() {
+        setWindow(at(2031, 1, 1, 0), at(2031, 3, 1, 0), null);
+        Task monthly = taskService.create(userId, task("rent", at(2030, 10, 31, 9), "monthly"));
+        Task once = taskService.create(userId, task("dentist", at(2030, 12, 15, 8), "none"));
+        insertOccurrence(monthly.getId(), at(2030, 12, 31, 9));
+        insertOccurrence(monthly.getId(), at(2031, 3, 31, 9));
+
+        List<TaskAgendaEntry> agenda = taskAgendaService.findAgenda(userId, at(2030, 11, 1, 0), at(2031, 6, 1, 0));
+
+        assertThat(agenda).filteredOn(entry -> entry.taskId() == monthly.getId())
+                .extracting(TaskAgendaEntry::occursAt)
+                .containsExactly(
+                        at(2030, 11, 30, 9), at(2030, 12, 31, 9), at(2031, 1, 31, 9), at(2031, 2, 28, 9),
+                        at(2031, 3, 31, 9), at(2031, 4, 30, 9), at(2031, 5, 31, 9));
+        assertThat(agenda).filteredOn(entry -> entry.taskId() == once.getId())
+                .extracting(TaskAgendaEntry::occursAt)
+                .containsExactly(at(2030, 12, 15, 8));
+        assertThat(agenda).extracting(TaskAgendaEntry::occursAt).isSorted();
+    }
+
+    /**
+     * Sửa lịch task trong lúc extendWindow đang sinh: giữ khoá dòng user để job dừng ở nhóm của user này
+     * (sau khi đã ghi extending_to), cho lần sửa xếp hàng sau job rồi thả khoá. Kết thúc phải chỉ còn lần lặp
+     * theo mốc mới trên toàn cửa sổ đã nới, không sót dòng của mốc cũ.
+     */
+    @Test
+    void taskEditDuringExtendWindowLeavesOnlyNewSchedule() throws Exception {
+        LocalDateTime today = LocalDate.now().atStartOfDay();
+        setWindow(today, today.plusDays(10), null);
+        Task task = taskService.create(userId, task("standup", today.minusDays(60).withHour(9), "daily"));
+        LocalDateTime newAnchor = today.minusDays(59).withHour(14);
+
+        CompletableFuture<Void> job;
+        CompletableFuture<Task> edit;
+        try (Connection holder = jdbcTemplate.getDataSource().getConnection()) {
+            holder.setAutoCommit(false);
+            try (PreparedStatement lock = holder.prepareStatement("SELECT id FROM todo_schema.users WHERE id = ? FOR UPDATE")) {
+                lock.setLong(1, userId);
+                lock.executeQuery().close();
+            }
+            job = CompletableFuture.runAsync(occurrenceIndex::extendWindow);
+            awaitLockWaiters(1);
+            assertThat(occurrenceIndex.currentWindow().extendingTo()).isEqualTo(today.plus(horizon));
+
+            edit = CompletableFuture.supplyAsync(
+                    () -> taskService.update(userId, task.getId(), task("standup", newAnchor, "daily")));
+            awaitLockWaiters(2);
+            holder.commit();
+        }
+        job.get(30, TimeUnit.SECONDS);
+        edit.get(30, TimeUnit.SECONDS);
+
+        TaskOccurrenceIndex.Window window = occurrenceIndex.currentWindow();
+        assertThat(window.to()).isEqualTo(today.plus(horizon));
+        assertThat(window.extendingTo()).isNull();
+        List<LocalDateTime> expected = RecurrenceRule.DAILY.occurrences(newAnchor, window.from(), window.to()).toList();
+        assertThat(indexed(task.getId())).isEqualTo(expected);
+
+        LocalDateTime from = window.from().minusDays(20);
+        LocalDateTime to = window.to().plusDays(20);
+        assertThat(taskAgendaService.findAgenda(userId, from, to))
+                .filteredOn(entry -> entry.taskId() == task.getId())
+                .extracting(TaskAgendaEntry::occursAt)
+                .isEqualTo(RecurrenceRule.DAILY.occurrences(newAnchor, from, to).toList());
+    }
+
+    private static Task task(String title, LocalDateTime dueDate, String repeat) {
+        TaskDetail detail = new TaskDetail();
+        detail.setDueDate(dueDate);
+        detail.setRepeat(repeat);
+        detail.setDuration("30m");
+        detail.setPriority(2);
+        Task task = new Task();
+        task.setTitle(title);
+        task.setTaskDetail(detail);
+        return task;
+    }
+
+    private static LocalDateTime at(int year, int month, int day, int hour) {
+        return LocalDateTime.of(year, month, day, hour, 0);
+    }
+
+    private void setWindow(LocalDateTime from, LocalDateTime to, LocalDateTime extendingTo) {
+        jdbcTemplate.update("UPDATE todo_schema.task_occurrence_window SET covered_from = ?, covered_to = ?, extending_to = ? WHERE id = 1",
+                timestamps.toDb(from), timestamps.toDb(to), extendingTo != null ? timestamps.toDb(extendingTo) : null);
+    }
+
+    private void insertOccurrence(Long taskId, LocalDateTime occursAt) {
+        jdbcTemplate.update("INSERT INTO todo_schema.task_occurrences (task_id, occurs_at, user_id, recurring) VALUES (?, ?, ?, TRUE)",
+                taskId, timestamps.toDb(occursAt), userId);
+    }
+
+    private List<LocalDateTime> indexed(Long taskId) {
+        return jdbcTemplate.query("SELECT occurs_at FROM todo_schema.task_occurrences WHERE task_id = ? ORDER BY occurs_at",
+                (rs, i) -> timestamps.fromDb(rs.getTimestamp(1)), taskId);
+    }
+
+    // Lần extendWindow lúc khởi động chạy trên scheduler; đợi nó xong (một lần cho cả class) để không ghi đè
+    // cửa sổ mà test tự đặt
+    private void awaitStartupCatchUp() throws InterruptedException {
+        if (startupCaughtUp) {
+            return;
+        }
+        LocalDateTime target = LocalDate.now().atStartOfDay().plus(horizon);
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        TaskOccurrenceIndex.Window window;
+        while ((window = occurrenceIndex.currentWindow()).extendingTo() != null || window.to().isBefore(target)) {
+            assertThat(System.nanoTime()).as("startup occurrence window catch-up").isLessThan(deadline);
+            Thread.sleep(20);
+        }
+        startupCaughtUp = true;
+    }
+
+    // Chờ tới khi có đủ số backend đang đợi khoá dòng
+    private void awaitLockWaiters(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM pg_stat_activity WHERE wait_event_type = 'Lock' AND datname = current_database()",
+                Long.class) < count) {
+            assertThat(System.nanoTime()).as("backends waiting on row locks").isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+}